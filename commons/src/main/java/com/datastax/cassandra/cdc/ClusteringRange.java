@@ -0,0 +1,91 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clustering bounds of a range deletion, the bound values are serialized with the CQL native protocol.
+ *
+ * A bound is a clustering prefix, an empty bound is unbounded, so a range with two empty bounds covers the whole partition.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ClusteringRange {
+    private static final int START_INCLUSIVE = 1;
+    private static final int END_INCLUSIVE = 2;
+
+    final List<ByteBuffer> start;
+    final boolean startInclusive;
+    final List<ByteBuffer> end;
+    final boolean endInclusive;
+
+    public ClusteringRange(List<ByteBuffer> start, boolean startInclusive, List<ByteBuffer> end, boolean endInclusive) {
+        this.start = start;
+        this.startInclusive = startInclusive;
+        this.end = end;
+        this.endInclusive = endInclusive;
+    }
+
+    public byte[] encode() {
+        int size = 1 + 2 + 2;
+        for (ByteBuffer value : start)
+            size += 4 + value.remaining();
+        for (ByteBuffer value : end)
+            size += 4 + value.remaining();
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.put((byte) ((startInclusive ? START_INCLUSIVE : 0) | (endInclusive ? END_INCLUSIVE : 0)));
+        encode(start, bb);
+        encode(end, bb);
+        return bb.array();
+    }
+
+    static void encode(List<ByteBuffer> bound, ByteBuffer bb) {
+        bb.putShort((short) bound.size());
+        for (ByteBuffer value : bound) {
+            bb.putInt(value.remaining());
+            bb.put(value.duplicate());
+        }
+    }
+
+    public static ClusteringRange decode(byte[] clusteringRange) {
+        ByteBuffer bb = ByteBuffer.wrap(clusteringRange);
+        byte flags = bb.get();
+        List<ByteBuffer> start = decode(bb);
+        List<ByteBuffer> end = decode(bb);
+        return new ClusteringRange(start, (flags & START_INCLUSIVE) != 0, end, (flags & END_INCLUSIVE) != 0);
+    }
+
+    static List<ByteBuffer> decode(ByteBuffer bb) {
+        int count = bb.getShort() & 0xFFFF;
+        List<ByteBuffer> bound = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = bb.getInt();
+            ByteBuffer value = bb.slice();
+            value.limit(length);
+            bb.position(bb.position() + length);
+            bound.add(value);
+        }
+        return bound;
+    }
+}
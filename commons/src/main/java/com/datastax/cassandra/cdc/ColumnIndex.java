@@ -0,0 +1,109 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordinals of the non primary key columns of a table, in column name order, to encode mutated columns as a bitmap.
+ *
+ * The producers build the index from the table schema to encode the columns bitmap of the mutation values, and the sources
+ * build it from the driver table metadata to decode it, falling back to a full row read when the versions differ. The version is the first 4 bytes of
+ * the SHA-256 of the column count and the sorted column names, so that a bitmap is only decoded with the columns it was encoded with.
+ */
+public class ColumnIndex {
+
+    private final String[] names;
+    private final Map<String, Integer> ordinals;
+    private final int version;
+
+    public ColumnIndex(Collection<String> columnNames) {
+        this.names = columnNames.toArray(new String[0]);
+        Arrays.sort(names);
+        this.ordinals = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ordinals.put(names[i], i);
+        }
+        this.version = version(names);
+    }
+
+    static int version(String[] names) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(intBytes(names.length));
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                // length prefixed, so that distinct name lists cannot hash the same bytes
+                digest.update(intBytes(bytes.length));
+                digest.update(bytes);
+            }
+            byte[] hash = digest.digest();
+            return (hash[0] & 0xff) << 24 | (hash[1] & 0xff) << 16 | (hash[2] & 0xff) << 8 | (hash[3] & 0xff);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * @return the bitmap of the columns, or null when a column is unknown.
+     */
+    public byte[] bitmap(String[] columns) {
+        byte[] bitmap = new byte[(names.length + 7) >>> 3];
+        for (String column : columns) {
+            Integer ordinal = ordinals.get(column);
+            if (ordinal == null)
+                return null;
+            bitmap[ordinal >>> 3] |= 1 << (ordinal & 7);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return the column names of a bitmap encoded with the given index version, or null when encoded with another version.
+     */
+    public String[] columns(Integer version, byte[] bitmap) {
+        return version != null && version == this.version ? columns(bitmap) : null;
+    }
+
+    /**
+     * @return the column names of a bitmap, in column name order.
+     */
+    public String[] columns(byte[] bitmap) {
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < names.length && (i >>> 3) < bitmap.length; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0)
+                columns.add(names[i]);
+        }
+        return columns.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc;
+
+/**
+ * Algorithm of the {@link MutationValue} digest, identified by the digest prefix.
+ *
+ * Digests of different versions never match, so mutations digested by producers of different versions
+ * are not deduplicated by the sources.
+ */
+public enum DigestVersion {
+    /**
+     * Hex MD5 of the serialized mutation, without prefix.
+     */
+    MD5(""),
+
+    /**
+     * Hex Murmur3 x64 128 bits hash of the serialized mutation.
+     */
+    MURMUR3_128("m3:");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public final String prefix;
+
+    DigestVersion(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return the version of a digest.
+     */
+    public static DigestVersion of(String digest) {
+        return digest != null && digest.startsWith(MURMUR3_128.prefix) ? MURMUR3_128 : MD5;
+    }
+
+    /**
+     * @return the 16 bytes of a hex digest, without its prefix.
+     */
+    public static byte[] toBytes(String digest) {
+        int offset = of(digest).prefix.length();
+        if (digest.length() - offset != 32)
+            throw new IllegalArgumentException("Invalid 128 bits digest " + digest);
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            bytes[i] = (byte) ((Character.digit(digest.charAt(offset + 2 * i), 16) << 4)
+                    | Character.digit(digest.charAt(offset + 2 * i + 1), 16));
+        }
+        return bytes;
+    }
+
+    /**
+     * Format a 16 bytes binary digest as a prefixed hex digest.
+     */
+    public String format(byte[] digest) {
+        long h1 = 0, h2 = 0;
+        for (int i = 0; i < 8; i++) {
+            h1 = (h1 << 8) | (digest[i] & 0xff);
+            h2 = (h2 << 8) | (digest[i + 8] & 0xff);
+        }
+        return format(h1, h2);
+    }
+
+    /**
+     * Format a 128 bits hash as a prefixed hex digest.
+     */
+    public String format(long h1, long h2) {
+        char[] chars = new char[prefix.length() + 32];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        int pos = prefix.length();
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            chars[pos++] = HEX[(int) (h1 >>> shift) & 0xf];
+        }
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            chars[pos++] = HEX[(int) (h2 >>> shift) & 0xf];
+        }
+        return new String(chars);
+    }
+}
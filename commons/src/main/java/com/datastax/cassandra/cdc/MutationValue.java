@@ -27,7 +27,7 @@ import java.util.UUID;
 @EqualsAndHashCode
 public class MutationValue {
     /**
-     * Mutation digest
+     * Mutation digest, prefixed by its {@link DigestVersion}, null in the compact encoding
      */
     String md5Digest;
 
@@ -37,7 +37,36 @@ public class MutationValue {
     UUID nodeId;
 
     /**
-     * Optional mutated columns
+     * Optional mutated columns, null in the compact encoding
      */
     String[] columns;
+
+    /**
+     * 16 bytes mutation digest in the compact encoding
+     */
+    byte[] digest;
+
+    /**
+     * {@link ColumnIndex} version of the columns bitmap in the compact encoding
+     */
+    Integer columnsVersion;
+
+    /**
+     * Bitmap of the mutated column ordinals in the compact encoding
+     */
+    byte[] columnsBitmap;
+
+    /**
+     * Optional {@link RowImage} of the mutated regular columns
+     */
+    byte[] rowImage;
+
+    /**
+     * Optional {@link ClusteringRange} of a range deletion, the clustering columns of the mutation key are then null
+     */
+    byte[] clusteringRange;
+
+    public MutationValue(String md5Digest, UUID nodeId, String[] columns) {
+        this(md5Digest, nodeId, columns, null, null, null, null, null);
+    }
 }
@@ -0,0 +1,74 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values of the mutated regular columns of a row, serialized with the CQL native protocol.
+ *
+ * A column with a null value was deleted, a column missing from the row image is unknown and must be read from Cassandra.
+ */
+public class RowImage {
+
+    public static byte[] encode(Map<String, ByteBuffer> values) {
+        int size = 4;
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            size += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 4;
+            if (entry.getValue() != null)
+                size += entry.getValue().remaining();
+        }
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.putInt(values.size());
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            bb.putShort((short) name.length);
+            bb.put(name);
+            if (entry.getValue() == null) {
+                bb.putInt(-1);
+            } else {
+                bb.putInt(entry.getValue().remaining());
+                bb.put(entry.getValue().duplicate());
+            }
+        }
+        return bb.array();
+    }
+
+    /**
+     * @return the column values in the row image order, with null values for the deleted columns.
+     */
+    public static Map<String, ByteBuffer> decode(byte[] rowImage) {
+        ByteBuffer bb = ByteBuffer.wrap(rowImage);
+        int count = bb.getInt();
+        Map<String, ByteBuffer> values = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[bb.getShort() & 0xFFFF];
+            bb.get(name);
+            int length = bb.getInt();
+            ByteBuffer value = null;
+            if (length >= 0) {
+                value = bb.slice();
+                value.limit(length);
+                bb.position(bb.position() + length);
+            }
+            values.put(new String(name, StandardCharsets.UTF_8), value);
+        }
+        return values;
+    }
+}
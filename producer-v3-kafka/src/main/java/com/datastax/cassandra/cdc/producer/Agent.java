@@ -17,6 +17,7 @@ package com.datastax.cassandra.cdc.producer;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.utils.FBUtilities;
 
 import java.io.IOException;
 import java.lang.instrument.Instrumentation;
@@ -60,12 +61,13 @@ public class Agent {
         log.info("Starting CDC producer agent, cdc_raw_directory={}", DatabaseDescriptor.getCDCLogLocation());
         ProducerConfig config = ProducerConfig.create(ProducerConfig.Plateform.KAFKA, agentArgs);
 
-        OffsetFileWriter offsetFileWriter = new OffsetFileWriter(DatabaseDescriptor.getCDCLogLocation());
         KafkaMutationSender kafkaMutationSender = new KafkaMutationSender(config);
-        CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl(config, offsetFileWriter, kafkaMutationSender);
+        OffsetWriter offsetWriter = OffsetWriter.create(config, DatabaseDescriptor.getCDCLogLocation(),
+                () -> new KafkaOffsetTopic(config, kafkaMutationSender), FBUtilities.getBroadcastAddress().getHostAddress());
+        CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl(config, offsetWriter, kafkaMutationSender);
         CommitLogTransfer commitLogTransfer = new BlackHoleCommitLogTransfer(config);
-        CommitLogReaderProcessor commitLogReaderProcessor = new CommitLogReaderProcessor(config, commitLogReadHandler, offsetFileWriter, commitLogTransfer);
-        CommitLogProcessor commitLogProcessor = new CommitLogProcessor(DatabaseDescriptor.getCDCLogLocation(), config, commitLogTransfer, offsetFileWriter, commitLogReaderProcessor);
+        CommitLogReaderProcessor commitLogReaderProcessor = new CommitLogReaderProcessor(config, commitLogReadHandler, offsetWriter, commitLogTransfer);
+        CommitLogProcessor commitLogProcessor = new CommitLogProcessor(DatabaseDescriptor.getCDCLogLocation(), config, commitLogTransfer, offsetWriter, commitLogReaderProcessor);
 
         // detect commitlogs file and submit new/modified files to the commitLogReader
         ExecutorService commitLogExecutor = Executors.newSingleThreadExecutor();
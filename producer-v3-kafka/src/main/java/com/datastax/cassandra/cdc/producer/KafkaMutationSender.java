@@ -15,11 +15,13 @@
  */
 package com.datastax.cassandra.cdc.producer;
 
+import com.datastax.cassandra.cdc.ColumnIndex;
 import com.datastax.cassandra.cdc.MutationValue;
 import com.google.common.collect.ImmutableMap;
-import io.confluent.connect.avro.AvroConverter;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
 import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
-import io.confluent.kafka.streams.serdes.avro.ReflectionAvroSerializer;
 import io.debezium.data.Uuid;
 import io.debezium.time.Date;
 import io.debezium.time.NanoDuration;
@@ -28,6 +30,7 @@ import io.debezium.time.Timestamp;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Conversions;
 import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumWriter;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.marshal.*;
@@ -37,17 +40,18 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
-import org.apache.kafka.connect.data.Struct;
-import org.apache.kafka.connect.storage.Converter;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Send a Kafka Connect message to the "dirty" topic where
- * key is serialized with the specified KeyConverter (the JsonConverter by default),
- * and the MutationValue serialized with the AvroConverter as a Struct.
+ * Send a Kafka message to the "dirty" topic where the key is the AVRO serialized Kafka Connect primary key,
+ * and the value is the AVRO reflect serialized MutationValue, both in the Confluent wire format.
  */
 @Slf4j
 public class KafkaMutationSender implements MutationSender<CFMetaData> , AutoCloseable {
@@ -55,11 +59,13 @@ public class KafkaMutationSender implements MutationSender<CFMetaData> , AutoClo
     public static final String SCHEMA_DOC_PREFIX = "Primary key schema for table ";
 
     final ProducerConfig config;
-    final Converter keyConverter;
-    final Map<String, Schema> schemas = new HashMap<>();
-    KafkaProducer<?, MutationValue> kafkaProducer; // lazy init
-
-    final Executor executor = Executors.newFixedThreadPool(1);
+    final SchemaRegistryClient schemaRegistryClient;
+    final AvroData avroData = new AvroData(1000);
+    final Map<String, Schema> schemas = new HashMap<>(); // CQL type to Kafka schema, read-only after construction
+    final Map<UUID, TableContext> contexts = new ConcurrentHashMap<>();
+    volatile KafkaProducer<byte[], byte[]> kafkaProducer; // lazy init
+    org.apache.avro.Schema valueSchema;
+    ReflectDatumWriter<MutationValue> valueWriter;
 
     KafkaMutationSender(ProducerConfig config) {
         this.config = config;
@@ -91,46 +97,114 @@ public class KafkaMutationSender implements MutationSender<CFMetaData> , AutoClo
                 AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, config.kafkaSchemaRegistryUrl
         );
 
-        // Kafka Converter for the Mutation key
-        keyConverter = new AvroConverter();
-        keyConverter.configure(converterConfig, true);
+        schemaRegistryClient = new CachedSchemaRegistryClient(config.kafkaSchemaRegistryUrl, 1000, converterConfig);
+    }
+
+    /**
+     * Per-table send context, resolved once for a given table metadata.
+     */
+    static class TableContext {
+        final CFMetaData tm;
+        final String topicName;
+        final WireFormatEncoder<List<CellData>> keyEncoder;
+        final WireFormatEncoder<MutationValue> valueEncoder;
+        final ColumnIndex columnIndex;
+
+        TableContext(CFMetaData tm, String topicName, WireFormatEncoder<List<CellData>> keyEncoder, WireFormatEncoder<MutationValue> valueEncoder, ColumnIndex columnIndex) {
+            this.tm = tm;
+            this.topicName = topicName;
+            this.keyEncoder = keyEncoder;
+            this.valueEncoder = valueEncoder;
+            this.columnIndex = columnIndex;
+        }
     }
 
-    @SuppressWarnings("rawtypes")
-    public Schema getKeySchema(final CFMetaData tm) {
+    Schema buildKeySchema(final CFMetaData tm) {
         String key = tm.ksName + "." + tm.cfName;
-        return schemas.computeIfAbsent(key, k -> {
-            List<ColumnDefinition> primaryKeyColumns = new ArrayList<>();
-            tm.primaryKeyColumns().forEach(primaryKeyColumns::add);
-            if (primaryKeyColumns.size() == 1) {
-                return schemas.get(primaryKeyColumns.get(0).type.asCQL3Type().toString());
-            } else {
-                SchemaBuilder schemaBuilder = SchemaBuilder.struct()
-                        .name(key)
-                        .version(1)
-                        .doc(SCHEMA_DOC_PREFIX + k);
-                int i = 0;
-                for(ColumnDefinition cm : primaryKeyColumns) {
-                    schemaBuilder.field(cm.name.toString(), schemas.get(primaryKeyColumns.get(i++).type.asCQL3Type().toString()));
+        List<ColumnDefinition> primaryKeyColumns = new ArrayList<>();
+        tm.primaryKeyColumns().forEach(primaryKeyColumns::add);
+        if (primaryKeyColumns.size() == 1) {
+            return schemas.get(primaryKeyColumns.get(0).type.asCQL3Type().toString());
+        } else {
+            SchemaBuilder schemaBuilder = SchemaBuilder.struct()
+                    .name(key)
+                    .version(1)
+                    .doc(SCHEMA_DOC_PREFIX + key);
+            for(ColumnDefinition cm : primaryKeyColumns) {
+                schemaBuilder.field(cm.name.toString(), schemas.get(cm.type.asCQL3Type().toString()));
+            }
+            return schemaBuilder.build();
+        }
+    }
+
+    /**
+     * @return the index of the non primary key columns, or null for the legacy mutation value.
+     */
+    ColumnIndex buildColumnIndex(final CFMetaData tm) {
+        if (!config.compactMutationValue)
+            return null;
+        List<String> columnNames = new ArrayList<>();
+        for (ColumnDefinition cd : tm.partitionColumns()) {
+            columnNames.add(cd.name.toString());
+        }
+        return new ColumnIndex(columnNames);
+    }
+
+    /**
+     * Get the send context of a table, with a lock-free fast path when the table metadata did not change.
+     * When the table metadata changes, the key schema is rebuilt and registered.
+     */
+    TableContext getTableContext(final CFMetaData tm) {
+        TableContext ctx = contexts.get(tm.cfId);
+        if (ctx != null && ctx.tm == tm) {
+            return ctx;
+        }
+        return contexts.compute(tm.cfId, (k, v) -> {
+            if (v != null) {
+                if (v.tm == tm) {
+                    return v;
+                }
+                if (v.tm.equals(tm)) {
+                    // same table definition, just a new metadata instance
+                    return new TableContext(tm, v.topicName, v.keyEncoder, v.valueEncoder, v.columnIndex);
                 }
-                return schemaBuilder.build();
+                log.info("Table {}.{} metadata changed, rebuilding the key schema", tm.ksName, tm.cfName);
+            }
+            String topicName = config.topicPrefix + tm.ksName + "." + tm.cfName;
+            try {
+                // subjects of the default TopicNameStrategy
+                return new TableContext(tm, topicName,
+                        WireFormatEncoder.keyEncoder(schemaRegistryClient, topicName + "-key", avroData.fromConnectSchema(buildKeySchema(tm))),
+                        WireFormatEncoder.valueEncoder(schemaRegistryClient, topicName + "-value", valueSchema, valueWriter),
+                        buildColumnIndex(tm));
+            } catch (IOException e) {
+                log.error("Failed to register the schemas of topic=" + topicName, e);
+                throw new UncheckedIOException(e);
             }
         });
     }
 
     @Override
-    public void initialize(ProducerConfig config) throws Exception {
+    public synchronized void initialize(ProducerConfig config) throws Exception {
+        if (this.kafkaProducer != null) {
+            return;
+        }
+
         // Add the AVRO logical type for UUID
         ReflectData.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
         ReflectData.AllowNull.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
+        // nullable fields with a null default, for both the legacy and compact mutation values
+        this.valueSchema = ReflectData.AllowNull.get().getSchema(MutationValue.class);
+        this.valueWriter = new ReflectDatumWriter<>(valueSchema, ReflectData.AllowNull.get());
 
         String producerName = "cdc-producer-" + StorageService.instance.getLocalHostId();
         Properties props = new Properties();
         props.put(org.apache.kafka.clients.producer.ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.kafkaBrokers);
         props.put(org.apache.kafka.clients.producer.ProducerConfig.CLIENT_ID_CONFIG, producerName);
         props.put(org.apache.kafka.clients.producer.ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, org.apache.kafka.common.serialization.ByteArraySerializer.class.getName());
-        props.put(org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ReflectionAvroSerializer.class.getName());
-        props.put("schema.registry.url", config.kafkaSchemaRegistryUrl);
+        props.put(org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, org.apache.kafka.common.serialization.ByteArraySerializer.class.getName());
+        // let the producer accumulator batch records, can be overridden with the kafkaProperties.
+        props.put(org.apache.kafka.clients.producer.ProducerConfig.LINGER_MS_CONFIG, "5");
         config.configureKafkaTls(props);
         props.putAll(config.kafkaProperties);
 
@@ -138,38 +212,28 @@ public class KafkaMutationSender implements MutationSender<CFMetaData> , AutoClo
         log.info("Kafka producer name={} created", producerName);
     }
 
-    Object buildKey(Schema keySchema, List<CellData> primaryKey) {
-        if (primaryKey.size() == 1) {
-            return primaryKey.get(0).value;
-        } else {
-            Struct struct = new Struct(keySchema);
-            for (CellData cellData : primaryKey) {
-                struct.put(cellData.name, cellData.value);
-            }
-            return struct;
-        }
-    }
-
     @Override
-    @SuppressWarnings({"rawtypes","unchecked"})
-    public CompletionStage<Void> sendMutationAsync(final Mutation<CFMetaData> mutation) throws Exception {
-        Schema keySchema = getKeySchema(mutation.getMetadata());
-        String topicName = config.topicPrefix + mutation.getMetadata().ksName + "." + mutation.getMetadata().cfName;
-        byte[] serializedKey = keyConverter.fromConnectData(topicName, keySchema, buildKey(keySchema, mutation.primaryKeyCells()));
-        ProducerRecord record = new ProducerRecord(topicName, serializedKey, mutation.mutationValue());
-        log.debug("Sending kafka record={}", record);
-
+    public CompletionStage<RecordMetadata> sendMutationAsync(final Mutation<CFMetaData> mutation) throws Exception {
         if (kafkaProducer == null) {
             initialize(config); // lazy init
         }
-        return CompletableFuture.runAsync(() -> {
-            try {
-                RecordMetadata metadata = (RecordMetadata) kafkaProducer.send(record).get();
+        TableContext ctx = getTableContext(mutation.getMetadata());
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(ctx.topicName,
+                ctx.keyEncoder.encode(mutation.primaryKeyCells()),
+                ctx.valueEncoder.encode(mutation.mutationValue(ctx.columnIndex)));
+        log.debug("Sending kafka record topic={} mutation={}", ctx.topicName, mutation);
+
+        // complete from the producer I/O thread callback, records are batched by the producer accumulator.
+        final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        kafkaProducer.send(record, (metadata, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
                 log.debug("Message sent metadata={}", metadata);
-            } catch (InterruptedException | ExecutionException e) {
-                throw new IllegalStateException(e);
+                future.complete(metadata);
             }
-        }, executor);
+        });
+        return future;
     }
 
     /**
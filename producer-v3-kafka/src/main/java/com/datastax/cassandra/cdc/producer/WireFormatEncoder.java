@@ -0,0 +1,174 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode a Kafka record key or value in the Confluent wire format: a magic byte, the 4 bytes schema id and the Avro binary data.
+ *
+ * The schema id is registered once when building the encoder, and records are written to a reusable per-thread buffer,
+ * without the Kafka Connect and the schema registry lookups of the Confluent converters and serializers.
+ */
+public abstract class WireFormatEncoder<T> {
+
+    public static final byte MAGIC_BYTE = 0x0;
+
+    static class Output extends ByteArrayOutputStream {
+        BinaryEncoder encoder;
+
+        Output() {
+            super(256);
+        }
+    }
+
+    static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+    final int schemaId;
+
+    WireFormatEncoder(int schemaId) {
+        this.schemaId = schemaId;
+    }
+
+    abstract void write(T data, Encoder encoder) throws IOException;
+
+    public byte[] encode(T data) throws IOException {
+        Output out = OUTPUT.get();
+        out.reset();
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+        out.encoder = EncoderFactory.get().directBinaryEncoder(out, out.encoder);
+        write(data, out.encoder);
+        out.encoder.flush();
+        return out.toByteArray();
+    }
+
+    static int register(SchemaRegistryClient schemaRegistryClient, String subject, Schema schema) throws IOException {
+        try {
+            return schemaRegistryClient.register(subject, new AvroSchema(schema));
+        } catch (RestClientException e) {
+            throw new IOException("Failed to register the schema of subject=" + subject, e);
+        }
+    }
+
+    /**
+     * Build an encoder of the primary key cells for the Avro schema of the key.
+     * The Avro schema is a primitive type for a single column primary key, or a record of the primary key columns.
+     */
+    public static WireFormatEncoder<List<CellData>> keyEncoder(SchemaRegistryClient schemaRegistryClient, String subject, Schema schema) throws IOException {
+        final int schemaId = register(schemaRegistryClient, subject, schema);
+        if (schema.getType() == Schema.Type.RECORD) {
+            final List<FieldWriter> fieldWriters = new ArrayList<>(schema.getFields().size());
+            for (Schema.Field field : schema.getFields()) {
+                fieldWriters.add(fieldWriter(field.schema()));
+            }
+            return new WireFormatEncoder<List<CellData>>(schemaId) {
+                @Override
+                void write(List<CellData> primaryKey, Encoder encoder) throws IOException {
+                    // primary key cells are in the schema field order
+                    for (int i = 0; i < fieldWriters.size(); i++) {
+                        fieldWriters.get(i).write(primaryKey.get(i).value, encoder);
+                    }
+                }
+            };
+        }
+        final FieldWriter fieldWriter = fieldWriter(schema);
+        return new WireFormatEncoder<List<CellData>>(schemaId) {
+            @Override
+            void write(List<CellData> primaryKey, Encoder encoder) throws IOException {
+                fieldWriter.write(primaryKey.get(0).value, encoder);
+            }
+        };
+    }
+
+    /**
+     * Build an encoder of values with a {@link DatumWriter} of the value schema.
+     */
+    public static <V> WireFormatEncoder<V> valueEncoder(SchemaRegistryClient schemaRegistryClient, String subject, Schema schema, final DatumWriter<V> datumWriter) throws IOException {
+        return new WireFormatEncoder<V>(register(schemaRegistryClient, subject, schema)) {
+            @Override
+            void write(V value, Encoder encoder) throws IOException {
+                datumWriter.write(value, encoder);
+            }
+        };
+    }
+
+    interface FieldWriter {
+        void write(Object value, Encoder encoder) throws IOException;
+    }
+
+    static FieldWriter fieldWriter(Schema schema) {
+        switch (schema.getType()) {
+            case UNION: {
+                // optional schemas are unions of null and the value type
+                final List<Schema> types = schema.getTypes();
+                final int nullIndex = types.get(0).getType() == Schema.Type.NULL ? 0 : 1;
+                final int valueIndex = 1 - nullIndex;
+                final FieldWriter valueWriter = fieldWriter(types.get(valueIndex));
+                return (value, encoder) -> {
+                    if (value == null) {
+                        encoder.writeIndex(nullIndex);
+                        encoder.writeNull();
+                    } else {
+                        encoder.writeIndex(valueIndex);
+                        valueWriter.write(value, encoder);
+                    }
+                };
+            }
+            case STRING:
+                // UUIDs are encoded as strings
+                return (value, encoder) -> encoder.writeString(value.toString());
+            case BOOLEAN:
+                return (value, encoder) -> encoder.writeBoolean((Boolean) value);
+            case BYTES:
+                return (value, encoder) -> encoder.writeBytes(value instanceof byte[]
+                        ? ByteBuffer.wrap((byte[]) value)
+                        : ((ByteBuffer) value).duplicate());
+            case INT:
+                return (value, encoder) -> encoder.writeInt(value instanceof Date
+                        ? (int) TimeUnit.MILLISECONDS.toDays(((Date) value).getTime())
+                        : ((Number) value).intValue());
+            case LONG:
+                return (value, encoder) -> encoder.writeLong(value instanceof Date
+                        ? ((Date) value).getTime()
+                        : ((Number) value).longValue());
+            case FLOAT:
+                return (value, encoder) -> encoder.writeFloat(((Number) value).floatValue());
+            case DOUBLE:
+                return (value, encoder) -> encoder.writeDouble(((Number) value).doubleValue());
+            default:
+                throw new IllegalArgumentException("Unsupported primary key schema type " + schema.getType());
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.datastax.cassandra.cdc.producer;
 
+import com.datastax.cassandra.cdc.ColumnIndex;
 import com.datastax.cassandra.cdc.MutationValue;
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
@@ -40,9 +41,8 @@ public class PulsarMutationSender implements MutationSender<CFMetaData>, AutoClo
 
     public static final String SCHEMA_DOC_PREFIX = "Primary key schema for table ";
 
-    PulsarClient client;
-    final Map<String, Producer<KeyValue<GenericRecord, MutationValue>>> producers = new ConcurrentHashMap<>();
-    final Map<String, Schema<GenericRecord>> schemas = new HashMap<>();
+    volatile PulsarClient client; // lazy init
+    final Map<UUID, TableContext> contexts = new ConcurrentHashMap<>();
     final ImmutableMap<String, SchemaType> schemaTypes;
     final ProducerConfig config;
 
@@ -76,58 +76,150 @@ public class PulsarMutationSender implements MutationSender<CFMetaData>, AutoClo
                 .build();
     }
 
-    @SuppressWarnings("rawtypes")
-    public Schema<GenericRecord> getKeySchema(final CFMetaData tm) {
+    /**
+     * Per-table send context, resolved once for a given table metadata.
+     */
+    static class TableContext {
+        final CFMetaData tm;
+        final String topicName;
+        final Schema<GenericRecord> keySchema;
+        final Producer<KeyValue<GenericRecord, MutationValue>> producer;
+        final ColumnIndex columnIndex;
+
+        TableContext(CFMetaData tm, String topicName, Schema<GenericRecord> keySchema, Producer<KeyValue<GenericRecord, MutationValue>> producer, ColumnIndex columnIndex) {
+            this.tm = tm;
+            this.topicName = topicName;
+            this.keySchema = keySchema;
+            this.producer = producer;
+            this.columnIndex = columnIndex;
+        }
+    }
+
+    Schema<GenericRecord> buildKeySchema(final CFMetaData tm) {
         final String key = tm.ksName + "." + tm.cfName;
-        return schemas.computeIfAbsent(key, k -> {
-            List<ColumnDefinition> primaryKeyColumns = new ArrayList<>();
-            tm.primaryKeyColumns().forEach(primaryKeyColumns::add);
-            RecordSchemaBuilder schemaBuilder = SchemaBuilder.record(k).doc(SCHEMA_DOC_PREFIX + k);
-            int i = 0;
-            for (ColumnDefinition cm : primaryKeyColumns) {
+        List<ColumnDefinition> primaryKeyColumns = new ArrayList<>();
+        tm.primaryKeyColumns().forEach(primaryKeyColumns::add);
+        RecordSchemaBuilder schemaBuilder = SchemaBuilder.record(key).doc(SCHEMA_DOC_PREFIX + key);
+        for (ColumnDefinition cm : primaryKeyColumns) {
+            if (cm.isClusteringColumn()) {
+                // clustering columns are null in the keys of range deletions
+                schemaBuilder
+                        .field(cm.name.toString())
+                        .type(schemaTypes.get(cm.type.asCQL3Type().toString()))
+                        .optional();
+            } else {
                 schemaBuilder
                         .field(cm.name.toString())
-                        .type(schemaTypes.get(primaryKeyColumns.get(i++).type.asCQL3Type().toString()));
+                        .type(schemaTypes.get(cm.type.asCQL3Type().toString()));
             }
-            SchemaInfo schemaInfo = schemaBuilder.build(SchemaType.AVRO);
-            return Schema.generic(schemaInfo);
-        });
+        }
+        SchemaInfo schemaInfo = schemaBuilder.build(SchemaType.AVRO);
+        return Schema.generic(schemaInfo);
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    public Producer<KeyValue<GenericRecord, MutationValue>> getProducer(final CFMetaData tm) {
-        final String topicName = config.topicPrefix + tm.ksName + "." + tm.cfName;
+    /**
+     * @return the index of the non primary key columns, or null for the legacy mutation value.
+     */
+    ColumnIndex buildColumnIndex(final CFMetaData tm) {
+        if (!config.compactMutationValue)
+            return null;
+        List<String> columnNames = new ArrayList<>();
+        for (ColumnDefinition cd : tm.partitionColumns()) {
+            columnNames.add(cd.name.toString());
+        }
+        return new ColumnIndex(columnNames);
+    }
+
+    Producer<KeyValue<GenericRecord, MutationValue>> createProducer(final String topicName, final Schema<GenericRecord> keySchema) {
         final String producerName = "pulsar-producer-" + StorageService.instance.getLocalHostId();
-        return producers.compute(topicName, (k, v) -> {
-            if (v == null) {
+        try {
+            Schema<KeyValue<GenericRecord, MutationValue>> keyValueSchema = Schema.KeyValue(
+                    keySchema,
+                    Schema.AVRO(MutationValue.class),
+                    KeyValueEncodingType.SEPARATED);
+            Producer<KeyValue<GenericRecord, MutationValue>> producer = configureProducer(client.newProducer(keyValueSchema), config)
+                    .producerName(producerName)
+                    .topic(topicName)
+                    .create();
+            log.info("Pulsar producer name={} created", producerName);
+            return producer;
+        } catch (Exception e) {
+            log.error("Failed to get a pulsar producer", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Apply the producer tuning settings to a producer builder.
+     */
+    static <T> ProducerBuilder<T> configureProducer(ProducerBuilder<T> builder, ProducerConfig config) {
+        builder.sendTimeout((int) config.pulsarSendTimeoutMs, TimeUnit.MILLISECONDS)
+                .hashingScheme(HashingScheme.Murmur3_32Hash)
+                .blockIfQueueFull(true)
+                .maxPendingMessages(config.pulsarMaxPendingMessages)
+                .maxPendingMessagesAcrossPartitions(config.pulsarMaxPendingMessagesAcrossPartitions)
+                .compressionType(CompressionType.valueOf(config.pulsarCompressionType.toUpperCase(Locale.ROOT)));
+        if (config.pulsarChunkingEnabled) {
+            // chunking cannot be enabled with batching
+            builder.enableBatching(false)
+                    .enableChunking(true);
+        } else {
+            builder.enableBatching(true)
+                    .batchingMaxPublishDelay(config.pulsarBatchDelayInMs, TimeUnit.MILLISECONDS)
+                    .batchingMaxMessages(config.pulsarBatchMaxMessages)
+                    .batchingMaxBytes(config.pulsarBatchMaxBytes)
+                    .batcherBuilder(batcherBuilder(config.pulsarBatcherType));
+        }
+        return builder;
+    }
+
+    static BatcherBuilder batcherBuilder(String batcherType) {
+        switch (batcherType.toUpperCase(Locale.ROOT)) {
+            case "KEY_BASED":
+                return BatcherBuilder.KEY_BASED;
+            case "DEFAULT":
+                return BatcherBuilder.DEFAULT;
+            default:
+                throw new IllegalArgumentException("Unsupported pulsar batcher type '" + batcherType + "'");
+        }
+    }
+
+    /**
+     * Get the send context of a table, with a lock-free fast path when the table metadata did not change.
+     * When the table metadata changes, the key schema and the producer are rebuilt.
+     */
+    TableContext getTableContext(final CFMetaData tm) {
+        TableContext ctx = contexts.get(tm.cfId);
+        if (ctx != null && ctx.tm == tm) {
+            return ctx;
+        }
+        return contexts.compute(tm.cfId, (k, v) -> {
+            if (v != null) {
+                if (v.tm == tm) {
+                    return v;
+                }
+                if (v.tm.equals(tm)) {
+                    // same table definition, just a new metadata instance
+                    return new TableContext(tm, v.topicName, v.keySchema, v.producer, v.columnIndex);
+                }
+                log.info("Table {}.{} metadata changed, closing producer of topic={}", tm.ksName, tm.cfName, v.topicName);
                 try {
-                    Schema<KeyValue<GenericRecord, MutationValue>> keyValueSchema = Schema.KeyValue(
-                            getKeySchema(tm),
-                            Schema.AVRO(MutationValue.class),
-                            KeyValueEncodingType.SEPARATED);
-                    Producer<KeyValue<GenericRecord, MutationValue>> producer = client.newProducer(keyValueSchema)
-                            .producerName(producerName)
-                            .topic(k)
-                            .sendTimeout(15, TimeUnit.SECONDS)
-                            .hashingScheme(HashingScheme.Murmur3_32Hash)
-                            .blockIfQueueFull(true)
-                            .enableBatching(true)
-                            .batchingMaxPublishDelay(1, TimeUnit.MILLISECONDS)
-                            .batcherBuilder(BatcherBuilder.KEY_BASED)
-                            .create();
-                    log.info("Pulsar producer name={} created", producerName);
-                    return producer;
-                } catch (Exception e) {
-                    log.error("Failed to get a pulsar producer", e);
-                    throw new RuntimeException(e);
+                    v.producer.close();
+                } catch (PulsarClientException e) {
+                    log.warn("Failed to close the pulsar producer of topic=" + v.topicName, e);
                 }
             }
-            return v;
+            String topicName = config.topicPrefix + tm.ksName + "." + tm.cfName;
+            Schema<GenericRecord> keySchema = buildKeySchema(tm);
+            return new TableContext(tm, topicName, keySchema, createProducer(topicName, keySchema), buildColumnIndex(tm));
         });
     }
 
     @Override
-    public void initialize(ProducerConfig config) throws PulsarClientException {
+    public synchronized void initialize(ProducerConfig config) throws PulsarClientException {
+        if (this.client != null) {
+            return;
+        }
         try {
             ClientBuilder clientBuilder = PulsarClient.builder().serviceUrl(config.pulsarServiceUrl);
 
@@ -174,13 +266,12 @@ public class PulsarMutationSender implements MutationSender<CFMetaData>, AutoClo
         if (this.client == null) {
             initialize(config);
         }
-        Producer<KeyValue<GenericRecord, MutationValue>> producer = getProducer(mutation.getMetadata());
-        Schema keySchema = getKeySchema(mutation.getMetadata());
-        TypedMessageBuilder<KeyValue<GenericRecord, MutationValue>> messageBuilder = producer.newMessage();
+        TableContext ctx = getTableContext(mutation.getMetadata());
+        TypedMessageBuilder<KeyValue<GenericRecord, MutationValue>> messageBuilder = ctx.producer.newMessage();
         return messageBuilder
                 .value(new KeyValue(
-                        buildKey(keySchema, mutation.primaryKeyCells()),
-                        mutation.mutationValue()))
+                        buildKey(ctx.keySchema, mutation.primaryKeyCells()),
+                        mutation.mutationValue(ctx.columnIndex)))
                 .sendAsync();
     }
 
@@ -0,0 +1,93 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Store the node offsets in a pulsar topic with the string schema, read with the compacted view of the topic
+ * within {@link ProducerConfig#offsetTopicReadTimeoutMs}.
+ * The pulsar client is shared with the {@link PulsarMutationSender}.
+ */
+@Slf4j
+public class PulsarOffsetTopic implements OffsetTopic {
+
+    final ProducerConfig config;
+    final PulsarMutationSender pulsarMutationSender;
+    volatile Producer<String> producer; // lazy init
+
+    public PulsarOffsetTopic(ProducerConfig config, PulsarMutationSender pulsarMutationSender) {
+        this.config = config;
+        this.pulsarMutationSender = pulsarMutationSender;
+    }
+
+    synchronized Producer<String> getProducer(String key) throws PulsarClientException {
+        if (producer == null) {
+            pulsarMutationSender.initialize(config);
+            producer = pulsarMutationSender.client.newProducer(Schema.STRING)
+                    .producerName("pulsar-offset-producer-" + key)
+                    .topic(config.offsetTopic)
+                    .create();
+            log.info("Pulsar offset producer topic={} created", config.offsetTopic);
+        }
+        return producer;
+    }
+
+    @Override
+    public CompletionStage<MessageId> publish(String key, String value) throws PulsarClientException {
+        return getProducer(key).newMessage().key(key).value(value).sendAsync();
+    }
+
+    @Override
+    public String read(String key) throws IOException, TimeoutException {
+        final long deadline = System.currentTimeMillis() + config.offsetTopicReadTimeoutMs;
+        pulsarMutationSender.initialize(config);
+        try (Reader<String> reader = pulsarMutationSender.client.newReader(Schema.STRING)
+                .topic(config.offsetTopic)
+                .startMessageId(MessageId.earliest)
+                .readCompacted(true)
+                .create()) {
+            String value = null;
+            while (reader.hasMessageAvailable()) {
+                Message<String> msg = reader.readNext((int) Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (msg == null) {
+                    throw new TimeoutException("Offset topic " + config.offsetTopic + " not read in " + config.offsetTopicReadTimeoutMs + "ms");
+                }
+                if (key.equals(msg.getKey())) {
+                    value = msg.getValue();
+                }
+            }
+            return value;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (producer != null) {
+            try {
+                producer.close();
+            } catch (PulsarClientException e) {
+                log.warn("close failed:", e);
+            }
+        }
+    }
+}
@@ -16,14 +16,55 @@
 package com.datastax.cassandra.cdc.producer;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import org.apache.cassandra.metrics.DefaultNameFactory;
 import org.apache.cassandra.metrics.MetricNameFactory;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
 
 public class CdcMetrics {
-    private static final MetricNameFactory factory = new DefaultNameFactory("CdcProducer");
+    private static final String TYPE = "CdcProducer";
+    private static final MetricNameFactory factory = new DefaultNameFactory(TYPE);
 
     public static final Counter sentMutations = Metrics.counter(factory.createMetricName("SentMutations"));
     public static final Counter sentErrors = Metrics.counter(factory.createMetricName("SentErrors"));
+    public static final Counter filteredUpdates = Metrics.counter(factory.createMetricName("FilteredUpdates"));
+    public static final Counter coalescedMutations = Metrics.counter(factory.createMetricName("CoalescedMutations"));
+    public static final Counter absorbedSubmissions = Metrics.counter(factory.createMetricName("AbsorbedCommitLogSubmissions"));
+
+    public static final Counter sendRetries = Metrics.counter(factory.createMetricName("SendRetries"));
+    public static final AtomicLong sendRetryBackoffMs = new AtomicLong(0L);
+    public static final Gauge<Long> sendRetryBackoffMsGauge =
+            Metrics.register(factory.createMetricName("SendRetryBackoffMs"), (Gauge<Long>) sendRetryBackoffMs::get);
+
+    public static final Counter circuitBreakerOpened = Metrics.counter(factory.createMetricName("CircuitBreakerOpened"));
+    public static final AtomicBoolean circuitBreakerOpen = new AtomicBoolean(false);
+    public static final Gauge<Integer> circuitBreakerOpenGauge =
+            Metrics.register(factory.createMetricName("CircuitBreakerOpen"), (Gauge<Integer>) () -> circuitBreakerOpen.get() ? 1 : 0);
+
+    public static final Counter spilledMutations = Metrics.counter(factory.createMetricName("SpilledMutations"));
+    public static final AtomicLong spillSizeBytes = new AtomicLong(0L);
+    public static final Gauge<Long> spillSizeBytesGauge =
+            Metrics.register(factory.createMetricName("SpillSizeBytes"), (Gauge<Long>) spillSizeBytes::get);
+    public static final AtomicInteger spillSegments = new AtomicInteger(0);
+    public static final Gauge<Integer> spillSegmentsGauge =
+            Metrics.register(factory.createMetricName("SpillSegments"), (Gauge<Integer>) spillSegments::get);
+
+    /**
+     * Register the per-backend metrics of a fan-out sender, scoped by backend name.
+     */
+    public static void registerFanOutSender(FanOutMutationSender<?> sender) {
+        for (String backend : sender.backends()) {
+            Metrics.register(DefaultNameFactory.createMetricName(TYPE, "FanOutPendingMutations", backend),
+                    (Gauge<Integer>) () -> sender.pendingMutations(backend));
+            Metrics.register(DefaultNameFactory.createMetricName(TYPE, "FanOutLagMs", backend),
+                    (Gauge<Long>) () -> sender.lagMs(backend));
+            Metrics.register(DefaultNameFactory.createMetricName(TYPE, "FanOutErrors", backend),
+                    (Gauge<Long>) () -> sender.errors(backend));
+        }
+    }
 }
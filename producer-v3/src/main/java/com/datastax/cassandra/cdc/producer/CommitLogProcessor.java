@@ -47,18 +47,18 @@ public class CommitLogProcessor extends AbstractProcessor implements AutoCloseab
 
     private final ProducerConfig config;
     private final CommitLogReaderProcessor commitLogReaderProcessor;
-    private final OffsetFileWriter offsetFileWriter;
+    private final OffsetWriter offsetWriter;
 
     public CommitLogProcessor(String cdcLogDir,
                               ProducerConfig config,
                               CommitLogTransfer commitLogTransfer,
-                              OffsetFileWriter offsetFileWriter,
+                              OffsetWriter offsetWriter,
                               CommitLogReaderProcessor commitLogReaderProcessor) throws IOException {
         super(NAME, 0);
         this.config = config;
         this.commitLogReaderProcessor = commitLogReaderProcessor;
         this.commitLogTransfer = commitLogTransfer;
-        this.offsetFileWriter = offsetFileWriter;
+        this.offsetWriter = offsetWriter;
         this.cdcDir = new File(cdcLogDir);
         this.newCommitLogWatcher = new AbstractDirectoryWatcher(cdcDir.toPath(),
                 Duration.ofMillis(config.cdcDirPollIntervalMs),
@@ -100,7 +100,7 @@ public class CommitLogProcessor extends AbstractProcessor implements AutoCloseab
                 long segmentId = CommitLogUtil.extractTimestamp(file.getName());
                 if (file.getName().endsWith(".log")) {
                     // only submit logs, not _cdc.idx
-                    if(segmentId >= offsetFileWriter.offset().segmentId) {
+                    if(segmentId >= offsetWriter.offset().segmentId) {
                         commitLogReaderProcessor.submitCommitLog(file);
                     }
                 } else if (file.getName().endsWith("_cdc.idx")) {
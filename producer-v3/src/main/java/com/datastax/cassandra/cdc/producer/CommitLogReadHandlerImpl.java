@@ -15,33 +15,40 @@
  */
 package com.datastax.cassandra.cdc.producer;
 
+import com.datastax.cassandra.cdc.DigestVersion;
 import com.datastax.cassandra.cdc.producer.exceptions.CassandraConnectorSchemaException;
 import com.datastax.cassandra.cdc.producer.exceptions.CassandraConnectorTaskException;
 import io.debezium.DebeziumException;
-import io.debezium.time.Conversions;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.config.DatabaseDescriptor;
-import org.apache.cassandra.cql3.ColumnSpecification;
+import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.LivenessInfo;
+import org.apache.cassandra.db.RangeTombstone;
+import org.apache.cassandra.db.Slice;
 import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
 import org.apache.cassandra.db.commitlog.CommitLogReadHandler;
-import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.CollectionType;
+import org.apache.cassandra.db.marshal.UserType;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.ColumnData;
+import org.apache.cassandra.db.rows.ComplexColumnData;
 import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.service.StorageService;
-import org.apache.cassandra.utils.ByteBufferUtil;
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.cassandra.transport.ProtocolVersion;
+import org.apache.cassandra.utils.MurmurHash;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.datastax.cassandra.cdc.producer.CommitLogReadHandlerImpl.RowType.DELETE;
 
@@ -55,17 +62,100 @@ import static com.datastax.cassandra.cdc.producer.CommitLogReadHandlerImpl.RowTy
 @Slf4j
 public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
     private static final boolean MARK_OFFSET = true;
+    private static final int MAX_DIGEST_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<DataOutputBuffer> digestBuffer = ThreadLocal.withInitial(DataOutputBuffer::new);
 
     private final MutationMaker<CFMetaData> mutationMaker;
-    private final MutationSender<CFMetaData> mutationSender;
+    private final MutationPipeline<CFMetaData> mutationPipeline;
+    private final MutationSpill<CFMetaData> mutationSpill;
+    private final MutationCoalescer<CFMetaData> mutationCoalescer;
+    final SegmentDecoderPool<CFMetaData> segmentDecoderPool;
     private final OffsetWriter offsetWriter;
+    private final Set<String> rowImageTables = new HashSet<>();
+    private final TableFilter<UUID> tableFilter;
+    private final Map<UUID, PrimaryKeyDecoder> primaryKeyDecoders = new ConcurrentHashMap<>();
 
     CommitLogReadHandlerImpl(ProducerConfig config,
-                             OffsetFileWriter offsetFileWriter,
-                             MutationSender<CFMetaData> mutationSender) {
-        this.mutationSender = mutationSender;
+                             OffsetWriter offsetWriter,
+                             MutationSender<CFMetaData> mutationSender) throws IOException {
         this.mutationMaker = new MutationMaker<>(config);
-        this.offsetWriter = offsetFileWriter;
+        this.tableFilter = new TableFilter<>(config);
+        for (String table : config.rowImageTables.split(",")) {
+            if (!table.trim().isEmpty())
+                rowImageTables.add(table.trim());
+        }
+        this.offsetWriter = offsetWriter;
+        this.mutationSpill = config.spillEnabled
+                ? new MutationSpill<CFMetaData>(config, Schema.instance::getCFMetaData, offsetWriter) {
+                    @Override
+                    protected void onSpilled(Mutation<CFMetaData> mutation) {
+                        CdcMetrics.spilledMutations.inc();
+                    }
+
+                    @Override
+                    protected void onSpillSizeChange(long sizeInBytes, int segments) {
+                        CdcMetrics.spillSizeBytes.set(sizeInBytes);
+                        CdcMetrics.spillSegments.set(segments);
+                    }
+                }
+                : null;
+        mutationSender = FanOutMutationSender.create(config, mutationSender);
+        if (mutationSender instanceof FanOutMutationSender) {
+            CdcMetrics.registerFanOutSender((FanOutMutationSender<CFMetaData>) mutationSender);
+        }
+        // when spilling, the pipeline acknowledges the spilled mutations and the commitlog offset is marked by the spill once synced.
+        this.mutationPipeline = new MutationPipeline<CFMetaData>(config, mutationSender, mutationSpill != null ? mutationSpill.offsetWriter() : offsetWriter) {
+            @Override
+            protected void onSent(Mutation<CFMetaData> mutation) {
+                CdcMetrics.sentMutations.inc();
+                log.debug("mutation={} sent", mutation);
+            }
+
+            @Override
+            protected void onError(Mutation<CFMetaData> mutation, Throwable t, int attempt, long backoffMs) {
+                log.error("failed to send mutation=" + mutation + ", retry attempt=" + attempt + " in " + backoffMs + "ms:", t);
+                CdcMetrics.sentErrors.inc();
+                CdcMetrics.sendRetries.inc();
+                CdcMetrics.sendRetryBackoffMs.set(backoffMs);
+            }
+
+            @Override
+            protected void onCircuitBreakerStateChange(boolean open) {
+                CdcMetrics.circuitBreakerOpen.set(open);
+                if (open) {
+                    CdcMetrics.circuitBreakerOpened.inc();
+                } else {
+                    CdcMetrics.sendRetryBackoffMs.set(0L);
+                }
+            }
+        };
+        if (mutationSpill != null) {
+            mutationSpill.start(mutationPipeline);
+        }
+        this.mutationCoalescer = config.coalesceWindowMs > 0
+                ? new MutationCoalescer<CFMetaData>(config, this::dispatch) {
+                    @Override
+                    protected void onCoalesced(Mutation<CFMetaData> mutation) {
+                        CdcMetrics.coalescedMutations.inc();
+                        log.debug("mutation={} coalesced", mutation);
+                    }
+                }
+                : null;
+        this.segmentDecoderPool = new SegmentDecoderPool<>(config);
+    }
+
+    /**
+     * Stop the coalescer, the segment decoders, the spill and the send pipeline threads.
+     */
+    public void close() {
+        if (mutationCoalescer != null) {
+            mutationCoalescer.close();
+        }
+        segmentDecoderPool.close();
+        if (mutationSpill != null) {
+            mutationSpill.close();
+        }
+        mutationPipeline.close();
     }
 
     /**
@@ -102,7 +192,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
          */
         COUNTER;
 
-        static final Set<PartitionType> supportedPartitionTypes = new HashSet<>(Arrays.asList(PARTITION_KEY_ROW_DELETION, ROW_LEVEL_MODIFICATION));
+        static final Set<PartitionType> supportedPartitionTypes = new HashSet<>(Arrays.asList(PARTITION_KEY_ROW_DELETION, PARTITION_AND_CLUSTERING_KEY_ROW_DELETION, ROW_LEVEL_MODIFICATION));
 
         public static PartitionType getPartitionType(PartitionUpdate pu) {
             if (pu.metadata().isCounter()) {
@@ -160,6 +250,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         /**
          * A row-level deletion that deletes a range of keys.
          * For example: DELETE * FROM table WHERE partition_key = 1 AND clustering_key > 0;
+         * The range tombstone markers are skipped, the range deletions are read from the partition update deletion info.
          */
         RANGE_TOMBSTONE,
 
@@ -212,21 +303,31 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             return;
         }
 
+        // digest the commitlog entry once for all its partition updates
+        String digest = null;
+        // the entry position is shared by all the partition updates and rows of the entry
+        com.datastax.cassandra.cdc.producer.CommitLogPosition entryPosition = null;
         for (PartitionUpdate pu : mutation.getPartitionUpdates()) {
-            com.datastax.cassandra.cdc.producer.CommitLogPosition entryPosition =
-                    new com.datastax.cassandra.cdc.producer.CommitLogPosition(CommitLogUtil.extractTimestamp(descriptor.fileName()), entryLocation);
+            // skip the filtered tables before decoding the partition update
+            if (!tableFilter.accept(pu.metadata().cfId, pu.metadata().ksName, pu.metadata().cfName)) {
+                CdcMetrics.filteredUpdates.inc();
+                continue;
+            }
 
-            if (offsetWriter.offset().compareTo(entryPosition) > 0) {
-                log.debug("Mutation at {} for table {}.{} already processed, skipping...",
-                        entryPosition, pu.metadata().ksName, pu.metadata().cfName);
-                return;
+            if (entryPosition == null) {
+                entryPosition = new com.datastax.cassandra.cdc.producer.CommitLogPosition(CommitLogUtil.extractTimestamp(descriptor.fileName()), entryLocation);
+                if (offsetWriter.offset().compareTo(entryPosition) > 0) {
+                    log.debug("Mutation at {} for table {}.{} already processed, skipping...",
+                            entryPosition, pu.metadata().ksName, pu.metadata().cfName);
+                    return;
+                }
             }
 
             try {
-                DataOutputBuffer dataOutputBuffer = new DataOutputBuffer();
-                org.apache.cassandra.db.Mutation.serializer.serialize(mutation, dataOutputBuffer, MessagingService.VERSION_3014);
-                String md5Digest = DigestUtils.md5Hex(dataOutputBuffer.getData());
-                process(pu, entryPosition, md5Digest);
+                if (digest == null) {
+                    digest = digest(mutation);
+                }
+                process(pu, entryPosition, digest);
             }
             catch (Exception e) {
                 throw new DebeziumException(String.format("Failed to process PartitionUpdate %s at %s for table %s.%s.",
@@ -235,6 +336,26 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Compute the {@link DigestVersion#MURMUR3_128} digest of a mutation, identical on all its replicas.
+     * The mutation is serialized into a reusable per-thread buffer.
+     */
+    static String digest(org.apache.cassandra.db.Mutation mutation) throws IOException {
+        DataOutputBuffer buffer = digestBuffer.get();
+        buffer.clear();
+        try {
+            org.apache.cassandra.db.Mutation.serializer.serialize(mutation, buffer, MessagingService.VERSION_3014);
+            long[] hash = new long[2];
+            MurmurHash.hash3_x64_128(ByteBuffer.wrap(buffer.getData()), 0, buffer.getLength(), 0L, hash);
+            return DigestVersion.MURMUR3_128.format(hash[0], hash[1]);
+        } finally {
+            if (buffer.getData().length > MAX_DIGEST_BUFFER_SIZE) {
+                // do not retain the buffer of large mutations
+                digestBuffer.remove();
+            }
+        }
+    }
+
     @Override
     public void handleUnrecoverableError(CommitLogReadException exception) throws IOException {
         log.error("Unrecoverable error when reading commit log", exception);
@@ -253,9 +374,9 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
     }
 
     /**
-     * Method which processes a partition update if it's valid (either a single-row partition-level
-     * deletion or a row-level modification) or throw an exception if it isn't. The valid partition
-     * update is then converted into a {@link Mutation}.
+     * Method which processes a partition update if it's valid (either a partition-level deletion,
+     * a range deletion or a row-level modification) or throw an exception if it isn't. The valid partition
+     * update is then converted into one or more {@link Mutation}.
      */
     private void process(PartitionUpdate pu, com.datastax.cassandra.cdc.producer.CommitLogPosition position, String md5Digest) {
         PartitionType partitionType = PartitionType.getPartitionType(pu);
@@ -265,23 +386,42 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             return;
         }
 
+        // decode the partition key once for all the rows of the partition update
+        PrimaryKeyDecoder decoder = primaryKeyDecoder(pu.metadata());
+        CellData[] partitionKeyCells = decoder.partitionKeyCells(decoder.decodePartitionKey(pu.partitionKey().getKey()));
+        boolean rowImage = !rowImageTables.isEmpty() && rowImageTables.contains(pu.metadata().ksName + "." + pu.metadata().cfName);
+
         switch (partitionType) {
             case PARTITION_KEY_ROW_DELETION:
-                handlePartitionDeletion(pu, position, md5Digest);
+                handlePartitionDeletion(pu, decoder, partitionKeyCells, position, md5Digest);
                 break;
 
+            case PARTITION_AND_CLUSTERING_KEY_ROW_DELETION:
             case ROW_LEVEL_MODIFICATION:
+                if (partitionType == PartitionType.PARTITION_AND_CLUSTERING_KEY_ROW_DELETION) {
+                    // the whole partition is deleted, before the range deletions and rows of the same update
+                    handleRangeDeletion(pu, decoder, partitionKeyCells, Slice.ALL, pu.partitionLevelDeletion().markedForDeleteAt(), position, md5Digest);
+                }
+                Iterator<RangeTombstone> rangeTombstones = pu.deletionInfo().rangeIterator(false);
+                while (rangeTombstones.hasNext()) {
+                    RangeTombstone rangeTombstone = rangeTombstones.next();
+                    handleRangeDeletion(pu, decoder, partitionKeyCells, rangeTombstone.deletedSlice(), rangeTombstone.deletionTime().markedForDeleteAt(), position, md5Digest);
+                }
+
                 UnfilteredRowIterator it = pu.unfilteredIterator();
                 while (it.hasNext()) {
                     Unfiltered rowOrRangeTombstone = it.next();
                     RowType rowType = RowType.getRowType(rowOrRangeTombstone);
+                    if (rowType == RowType.RANGE_TOMBSTONE) {
+                        continue;
+                    }
                     if (!RowType.isValid(rowType)) {
                         log.warn("Encountered an unsupported row type {}, skipping...", rowType);
                         continue;
                     }
                     Row row = (Row) rowOrRangeTombstone;
 
-                    handleRowModifications(row, rowType, pu, position, md5Digest);
+                    handleRowModifications(row, rowType, pu, decoder, partitionKeyCells, rowImage, position, md5Digest);
                 }
                 break;
 
@@ -302,12 +442,13 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      *          b. populate regular columns with null values
      *      (4) Assemble a {@link Mutation} object from the populated data and queue the record
      */
-    private void handlePartitionDeletion(PartitionUpdate pu, com.datastax.cassandra.cdc.producer.CommitLogPosition offsetPosition, String md5Digest) {
+    private void handlePartitionDeletion(PartitionUpdate pu, PrimaryKeyDecoder decoder, CellData[] partitionKeyCells,
+                                         com.datastax.cassandra.cdc.producer.CommitLogPosition offsetPosition, String md5Digest) {
         try {
 
-            RowData after = new RowData();
+            RowData after = new RowData(decoder.layout);
 
-            populatePartitionColumns(after, pu);
+            decoder.populatePartitionColumns(after, partitionKeyCells);
 
             /*
             // For partition deletions, the PartitionUpdate only specifies the partition key, it does not
@@ -329,16 +470,34 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             }
             */
 
-            mutationMaker.delete(DatabaseDescriptor.getClusterName(), StorageService.instance.getLocalHostUUID(), offsetPosition,
-                    pu.metadata().ksName, pu.metadata().cfName, false,
-                    Conversions.toInstantFromMicros(pu.maxTimestamp()), after,
-                    MARK_OFFSET, this::blockingSend, md5Digest, pu.metadata());
+            mutationMaker.delete(decoder.source, offsetPosition, pu.maxTimestamp(), after,
+                    MARK_OFFSET, m -> send(m, pu.dataSize(), pu.partitionKey().hashCode()), md5Digest, pu.metadata());
         }
         catch (Exception e) {
             log.error("Fail to send delete partition at {}. Reason: {}", offsetPosition, e);
         }
     }
 
+    /**
+     * Handle a range deletion, or a partition-level deletion of a table with clustering columns, by sending a single
+     * {@link Mutation} with the partition key, null clustering columns and the clustering bounds of the deleted range,
+     * instead of a mutation per deleted row. The source connectors read the remaining rows of the range.
+     */
+    private void handleRangeDeletion(PartitionUpdate pu, PrimaryKeyDecoder decoder, CellData[] partitionKeyCells, Slice slice, long markedForDeleteAt,
+                                     com.datastax.cassandra.cdc.producer.CommitLogPosition offsetPosition, String md5Digest) {
+        try {
+            RowData after = new RowData(decoder.layout);
+            decoder.populatePartitionColumns(after, partitionKeyCells);
+            decoder.populateClusteringRange(after, slice);
+
+            mutationMaker.delete(decoder.source, offsetPosition, markedForDeleteAt, after,
+                    MARK_OFFSET, m -> send(m, pu.dataSize(), pu.partitionKey().hashCode()), md5Digest, pu.metadata());
+        }
+        catch (Exception e) {
+            log.error("Fail to send range deletion at {}. Reason: {}", offsetPosition, e);
+        }
+    }
+
     /**
      * Handle a valid event resulted from a row-level modification by converting Cassandra representation of
      * this event into a {@link Mutation} object and sent it to pulsar. A valid event
@@ -349,37 +508,32 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      *      (3) Populate the "after" field for this event
      *          a. populate partition columns
      *          b. populate clustering columns
-     *          c. populate regular columns
-     *          d. for deletions, populate regular columns with null values
+     *          c. populate regular columns for the row image tables
      *      (4) Assemble a {@link Mutation} object from the populated data and queue the record
      */
-    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu,
+    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu, PrimaryKeyDecoder decoder, CellData[] partitionKeyCells, boolean rowImage,
                                         com.datastax.cassandra.cdc.producer.CommitLogPosition offsetPosition, String md5Digest) {
 
-        RowData after = new RowData();
-        populatePartitionColumns(after, pu);
-        populateClusteringColumns(after, row, pu);
-        //populateRegularColumns(after, row, rowType);
+        RowData after = new RowData(decoder.layout);
+        decoder.populatePartitionColumns(after, partitionKeyCells);
+        decoder.populateClusteringColumns(after, row.clustering());
+        if (rowImage && rowType != DELETE) {
+            populateRegularColumns(after, row);
+        }
 
         long ts = rowType == DELETE ? row.deletion().time().markedForDeleteAt() : pu.maxTimestamp();
 
         switch (rowType) {
             case INSERT:
-                mutationMaker.insert(DatabaseDescriptor.getClusterName(), StorageService.instance.getLocalHostUUID(), offsetPosition,
-                        pu.metadata().ksName, pu.metadata().cfName, false,
-                        Conversions.toInstantFromMicros(ts), after, MARK_OFFSET, this::blockingSend, md5Digest, pu.metadata());
+                mutationMaker.insert(decoder.source, offsetPosition, ts, after, MARK_OFFSET, m -> send(m, row.dataSize(), pu.partitionKey().hashCode()), md5Digest, pu.metadata());
                 break;
 
             case UPDATE:
-                mutationMaker.update(DatabaseDescriptor.getClusterName(), StorageService.instance.getLocalHostUUID(), offsetPosition,
-                        pu.metadata().ksName, pu.metadata().cfName, false,
-                        Conversions.toInstantFromMicros(ts), after, MARK_OFFSET, this::blockingSend, md5Digest, pu.metadata());
+                mutationMaker.update(decoder.source, offsetPosition, ts, after, MARK_OFFSET, m -> send(m, row.dataSize(), pu.partitionKey().hashCode()), md5Digest, pu.metadata());
                 break;
 
             case DELETE:
-                mutationMaker.delete(DatabaseDescriptor.getClusterName(), StorageService.instance.getLocalHostUUID(), offsetPosition,
-                        pu.metadata().ksName, pu.metadata().cfName, false,
-                        Conversions.toInstantFromMicros(ts), after, MARK_OFFSET, this::blockingSend, md5Digest, pu.metadata());
+                mutationMaker.delete(decoder.source, offsetPosition, ts, after, MARK_OFFSET, m -> send(m, row.dataSize(), pu.partitionKey().hashCode()), md5Digest, pu.metadata());
                 break;
 
             default:
@@ -387,184 +541,117 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
-    private void populatePartitionColumns(RowData after, PartitionUpdate pu) {
-        List<Object> partitionKeys = getPartitionKeys(pu);
-        for (ColumnDefinition cd : pu.metadata().partitionKeyColumns()) {
-            try {
-                String name = cd.name.toString();
-                Object value = partitionKeys.get(cd.position());
-                CellData cellData = new CellData(name, value, null, CellData.ColumnType.PARTITION);
-                after.addCell(cellData);
-            }
-            catch (Exception e) {
-                throw new DebeziumException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
-                        cd.name.toString(), cd.type.toString(), cd.cfName, cd.ksName), e);
-            }
+    /**
+     * Get the primary key decoder and column layout of a table, rebuilt when the table metadata changes.
+     */
+    PrimaryKeyDecoder primaryKeyDecoder(CFMetaData tm) {
+        PrimaryKeyDecoder decoder = primaryKeyDecoders.get(tm.cfId);
+        if (decoder == null || !decoder.isFor(tm) || decoder.source.nodeId == null) {
+            decoder = new PrimaryKeyDecoder(tm, DatabaseDescriptor.getClusterName(), StorageService.instance.getLocalHostUUID());
+            primaryKeyDecoders.put(tm.cfId, decoder);
         }
+        return decoder;
     }
 
-    @SuppressWarnings({"unchecked","rawtypes"})
-    private void populateClusteringColumns(RowData after, Row row, PartitionUpdate pu) {
-        for (ColumnDefinition cd : pu.metadata().clusteringColumns()) {
-            try {
-                String name = cd.name.toString();
-                Object value = cd.type.compose(row.clustering().get(cd.position()));
-                CellData cellData = new CellData(name, value, null, CellData.ColumnType.CLUSTERING);
-                after.addCell(cellData);
-            }
-            catch (Exception e) {
-                throw new DebeziumException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
-                        cd.name.toString(), cd.type.toString(), cd.cfName, cd.ksName), e);
+    /**
+     * Populate the regular columns of a row image with their CQL native protocol serialized value, null for deleted cells.
+     * Partial updates of non-frozen collections and UDTs are skipped because their full value is unknown.
+     */
+    private void populateRegularColumns(RowData after, Row row) {
+        for (ColumnData cd : row) {
+            ColumnDefinition cm = cd.column();
+            if (cm.type.isCounter()) {
+                continue;
             }
-        }
-    }
-
-    /*
-    private void populateRegularColumns(RowData after, Row row, RowType rowType) {
-        if (rowType == INSERT || rowType == UPDATE) {
-            for (ColumnMetadata cd : row.columns()) {
-                try {
-                    Object value;
-                    Object deletionTs = null;
-                    AbstractType abstractType = cd.type;
-                    if (abstractType.isCollection() && abstractType.isMultiCell()) {
-                        ComplexColumnData ccd = row.getComplexColumnData(cd);
-                        value = CassandraTypeDeserializer.deserialize((CollectionType) abstractType, ccd);
+            try {
+                ByteBuffer value;
+                Object deletionTs = null;
+                if (cm.isSimple()) {
+                    Cell cell = (Cell) cd;
+                    value = cell.isTombstone() ? null : cell.value();
+                    deletionTs = cell.isExpiring() ? TimeUnit.MICROSECONDS.convert(cell.localDeletionTime(), TimeUnit.SECONDS) : null;
+                }
+                else {
+                    ComplexColumnData ccd = (ComplexColumnData) cd;
+                    if (ccd.complexDeletion().isLive()) {
+                        // elements added to or removed from the existing value
+                        continue;
+                    }
+                    if (!ccd.iterator().hasNext()) {
+                        value = null;
+                    }
+                    else if (cm.type instanceof CollectionType) {
+                        value = ((CollectionType<?>) cm.type).serializeForNativeProtocol(ccd.iterator(), ProtocolVersion.V4);
+                    }
+                    else if (cm.type instanceof UserType) {
+                        value = ((UserType) cm.type).serializeForNativeProtocol(ccd.iterator(), ProtocolVersion.V4);
                     }
                     else {
-                        org.apache.cassandra.db.rows.Cell cell = row.getCell(cd);
-                        value = cell.isTombstone() ? null : CassandraTypeDeserializer.deserialize(abstractType, cell.value());
-                        deletionTs = cell.isExpiring() ? TimeUnit.MICROSECONDS.convert(cell.localDeletionTime(), TimeUnit.SECONDS) : null;
+                        continue;
                     }
-                    String name = cd.name.toString();
-                    CellData cellData = new CellData(name, value, deletionTs, CellData.ColumnType.REGULAR);
-                    after.addCell(cellData);
-                }
-                catch (Exception e) {
-                    throw new DebeziumException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
-                            cd.name.toString(), cd.type.toString(), cd.cfName, cd.ksName), e);
                 }
+                after.addCell(new CellData(cm.name.toString(), value, deletionTs, CellData.ColumnType.REGULAR));
             }
-        }
-        else if (rowType == DELETE) {
-            // For row-level deletions, row.columns() will result in an empty list and does not contain
-            // the column definitions for the deleted columns. In order to differentiate deleted columns from
-            // unmodified columns, we populate the deleted columns with null value and timestamps.
-            TableMetadata tableMetadata = schema.tableMetadata();
-            long deletionTs = row.deletion().time().markedForDeleteAt();
-            for (ColumnMetadata cm : tableMetadata.columns()) {
-                if (!cm.isPrimaryKeyColumn()) {
-                    String name = cm.name.toString();
-                    CellData cellData = new CellData(name, null, deletionTs, CellData.ColumnType.REGULAR);
-                    after.addCell(cellData);
-                }
+            catch (Exception e) {
+                throw new DebeziumException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
+                        cm.name.toString(), cm.type.toString(), cm.cfName, cm.ksName), e);
             }
         }
     }
-    */
 
     /**
-     * Given a PartitionUpdate, deserialize the partition key byte buffer
-     * into a list of partition key values.
+     * Send a mutation, or add it to the coalescing window when enabled.
+     * The mutations decoded by a {@link SegmentDecoderPool} decoder are buffered, and sent in commitlog order.
      */
-    @SuppressWarnings("checkstyle:magicnumber")
-    private static List<Object> getPartitionKeys(PartitionUpdate pu) {
-        List<Object> values = new ArrayList<>();
-
-        List<ColumnDefinition> columnDefinitions = pu.metadata().partitionKeyColumns();
-
-        // simple partition key
-        if (columnDefinitions.size() == 1) {
-            ByteBuffer bb = pu.partitionKey().getKey();
-            ColumnSpecification cs = columnDefinitions.get(0);
-            AbstractType<?> type = cs.type;
-            try {
-                Object value = type.compose(bb);
-                values.add(value);
-            }
-            catch (Exception e) {
-                throw new DebeziumException(String.format("Failed to deserialize Column %s with Type %s in Table %s and KeySpace %s.",
-                        cs.name.toString(), cs.type.toString(), cs.cfName, cs.ksName), e);
-            }
+    public void send(Mutation<CFMetaData> mutation, long size, int partitionKeyHash) throws InterruptedException {
+        if (segmentDecoderPool.buffer(mutation, size, partitionKeyHash)) {
+            return;
         }
-        else {
-            ByteBuffer keyBytes = pu.partitionKey().getKey().duplicate();
-
-            // 0xFFFF is reserved to encode "static column", skip if it exists at the start
-            if (keyBytes.remaining() >= 2) {
-                int header = ByteBufferUtil.getShortLength(keyBytes, keyBytes.position());
-                if ((header & 0xFFFF) == 0xFFFF) {
-                    ByteBufferUtil.readShortLength(keyBytes);
-                }
-            }
-
-            // the encoding of columns in the partition key byte buffer is
-            // <col><col><col>...
-            // where <col> is:
-            // <length of value><value><end-of-component byte>
-            // <length of value> is a 2 bytes unsigned short (excluding 0xFFFF used to encode "static columns")
-            // <end-of-component byte> should always be 0 for columns (1 for query bounds)
-            // this section reads the bytes for each column and deserialize into objects based on each column type
-            int i = 0;
-            while (keyBytes.remaining() > 0 && i < columnDefinitions.size()) {
-                ColumnSpecification cs = columnDefinitions.get(i);
-                AbstractType<?> type = cs.type;
-                ByteBuffer bb = ByteBufferUtil.readBytesWithShortLength(keyBytes);
-                try {
-                    Object value = type.compose(bb);
-                    values.add(value);
-                }
-                catch (Exception e) {
-                    throw new DebeziumException(String.format("Failed to deserialize Column %s with Type %s in Table %s and KeySpace %s",
-                            cs.name.toString(), cs.type.toString(), cs.cfName, cs.ksName), e);
-                }
-                byte b = keyBytes.get();
-                if (b != 0) {
-                    break;
-                }
-                ++i;
-            }
+        if (mutationCoalescer != null) {
+            mutationCoalescer.add(mutation, size, partitionKeyHash);
+        } else {
+            dispatch(mutation, size, partitionKeyHash);
         }
-
-        return values;
     }
 
-    public void blockingSend(Mutation<CFMetaData> mutation) {
-        com.datastax.cassandra.cdc.producer.CommitLogPosition sentOffset = offsetWriter.offset();
-        long seg = sentOffset.segmentId;
-        int pos = sentOffset.position;
-
+    /**
+     * Dispatch a mutation to the send lane of its partition key, or append it to the spill when enabled.
+     * Blocks while the lane or the spill is full.
+     */
+    void dispatch(Mutation<CFMetaData> mutation, long size, int partitionKeyHash) throws InterruptedException {
         assert mutation != null : "Unexpected null mutation";
-        assert mutation.getCommitLogPosition().getSegmentId() >= seg : "Unexpected mutation segment";
-        assert mutation.getCommitLogPosition().getSegmentId() > seg ||
-                (mutation.getCommitLogPosition().getSegmentId() == seg && mutation.getCommitLogPosition().getPosition() > pos)
-                : "Unexpected mutation offset";
+        assert isAfterSentOffset(mutation) : "Unexpected mutation offset";
 
         log.debug("Sending mutation={}", mutation);
-
-        while(true) {
+        if (mutationSpill != null) {
             try {
-                processMutation(mutation).toCompletableFuture().get();
-                break;
-            } catch(Exception e) {
-                log.error("failed to send message to pulsar:", e);
-                CdcMetrics.sentErrors.inc();
-                try {
-                    Thread.sleep(10000);
-                } catch(InterruptedException interruptedException) {
-                }
+                mutationSpill.append(mutation, size, partitionKeyHash);
+            } catch (IOException e) {
+                throw new CassandraConnectorTaskException("Failed to spill mutation=" + mutation, e);
             }
+        } else {
+            mutationPipeline.send(mutation, size, partitionKeyHash);
         }
     }
 
-    // TODO: add exponential retry
-    CompletionStage<Void> processMutation(final Mutation<CFMetaData> mutation) throws Exception {
-        return this.mutationSender.sendMutationAsync(mutation)
-                .thenAccept(msgId -> {
-                    CdcMetrics.sentMutations.inc();
-                    offsetWriter.markOffset(mutation);
-                    log.info("mutation={} sent", mutation);
-                });
+    /**
+     * @return true if the mutation is not before the sent offset, only checked when assertions are enabled.
+     */
+    private boolean isAfterSentOffset(Mutation<CFMetaData> mutation) {
+        return mutation.getCommitLogPosition().compareTo(offsetWriter.offset()) >= 0;
     }
 
+    /**
+     * Flush the coalescing window and wait until all the dispatched mutations are acknowledged, or synced to disk when spilling.
+     */
+    public void drain() throws InterruptedException {
+        if (mutationCoalescer != null) {
+            mutationCoalescer.flush();
+        }
+        if (mutationSpill != null) {
+            mutationSpill.sync();
+        } else {
+            mutationPipeline.drain();
+        }
+    }
 }
@@ -16,12 +16,12 @@
 package com.datastax.cassandra.cdc.producer;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.commitlog.CommitLogPosition;
 import org.apache.cassandra.db.commitlog.CommitLogReader;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.PriorityBlockingQueue;
 
 /**
  * Consume a queue of commitlog files to read mutations.
@@ -35,20 +35,26 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
     public static final String ARCHIVE_FOLDER = "archive";
     public static final String ERROR_FOLDER = "error";
 
-    private final PriorityBlockingQueue<File> commitLogQueue = new PriorityBlockingQueue<>(128, CommitLogUtil::compareCommitLogs);
+    // one entry per segment, the _cdc.idx updates of a queued segment are absorbed
+    private final SegmentQueue commitLogQueue = new SegmentQueue() {
+        @Override
+        protected void onAbsorbed(File file) {
+            CdcMetrics.absorbedSubmissions.inc();
+        }
+    };
     private final CommitLogReadHandlerImpl commitLogReadHandler;
-    private final OffsetFileWriter offsetFileWriter;
+    private final OffsetWriter offsetWriter;
     private final CommitLogTransfer commitLogTransfer;
     private final ProducerConfig config;
 
     public CommitLogReaderProcessor(ProducerConfig config,
                                     CommitLogReadHandlerImpl commitLogReadHandler,
-                                    OffsetFileWriter offsetFileWriter,
+                                    OffsetWriter offsetWriter,
                                     CommitLogTransfer commitLogTransfer) {
         super(NAME, 0);
         this.config = config;
         this.commitLogReadHandler = commitLogReadHandler;
-        this.offsetFileWriter = offsetFileWriter;
+        this.offsetWriter = offsetWriter;
         this.commitLogTransfer = commitLogTransfer;
     }
 
@@ -57,11 +63,21 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
         this.commitLogQueue.add(file);
     }
 
+    /**
+     * Read the commitlog files in segment order. When {@link ProducerConfig#segmentDecoderThreads} is greater than 1,
+     * the next files are decoded concurrently while the mutations of the oldest one are sent.
+     */
     @Override
     public void process() throws InterruptedException {
+        SegmentDecoderPool<CFMetaData> segmentDecoderPool = commitLogReadHandler.segmentDecoderPool;
         File file = null;
         while (true) {
-            file = this.commitLogQueue.take();
+            file = segmentDecoderPool.isEmpty() ? this.commitLogQueue.take() : this.commitLogQueue.poll();
+            if (file == null) {
+                // no more files to decode ahead
+                processDecodedSegment(segmentDecoderPool);
+                continue;
+            }
             if (!file.exists()) {
                 log.debug("file={} does not exist any more, ignoring", file.getName());
                 continue;
@@ -69,8 +85,21 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
             long seg = CommitLogUtil.extractTimestamp(file.getName());
 
             // ignore file before the last write offset
-            if (seg < this.offsetFileWriter.offset().segmentId) {
-                log.debug("Ignoring file={} before the replicated segment={}", file.getName(), this.offsetFileWriter.offset().segmentId);
+            if (seg < this.offsetWriter.offset().segmentId) {
+                log.debug("Ignoring file={} before the replicated segment={}", file.getName(), this.offsetWriter.offset().segmentId);
+                continue;
+            }
+
+            if (segmentDecoderPool.isEnabled()) {
+                if (segmentDecoderPool.contains(file)) {
+                    log.debug("Ignoring file={} already submitted", file.getName());
+                    continue;
+                }
+                log.debug("decoding file={}", file.getName());
+                segmentDecoderPool.submit(file, f -> new CommitLogReader().readCommitLogSegment(commitLogReadHandler, f, false));
+                if (segmentDecoderPool.isFull()) {
+                    processDecodedSegment(segmentDecoderPool);
+                }
                 continue;
             }
 
@@ -79,13 +108,15 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
             CommitLogReader commitLogReader = new CommitLogReader();
             try {
                 // hack to use a dummy min position for segment ahead of the offetFile.
-                CommitLogPosition minPosition = (seg > offsetFileWriter.offset().segmentId)
+                CommitLogPosition minPosition = (seg > offsetWriter.offset().segmentId)
                         ? new CommitLogPosition(seg, 0)
-                        : new CommitLogPosition(offsetFileWriter.offset().getSegmentId(), offsetFileWriter.offset().getPosition());
+                        : new CommitLogPosition(offsetWriter.offset().getSegmentId(), offsetWriter.offset().getPosition());
 
                 commitLogReader.readCommitLogSegment(commitLogReadHandler, file, false);
+                // wait for all in-flight mutations before flushing the offset and transferring the commitlog
+                commitLogReadHandler.drain();
                 log.debug("Successfully processed commitlog minPosition={} file={}", minPosition, file.getName());
-                offsetFileWriter.flush(); // flush sent offset after each CL file
+                offsetWriter.flush(); // flush sent offset after each CL file
                 commitLogTransfer.onSuccessTransfer(file.toPath());
             } catch (Exception e) {
                 log.warn("Failed to read commitlog file=" + file.getName(), e);
@@ -94,6 +125,27 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
         }
     }
 
+    /**
+     * Send the mutations of the oldest decoded segment, and transfer it once all its mutations are acknowledged.
+     */
+    private void processDecodedSegment(SegmentDecoderPool<CFMetaData> segmentDecoderPool) throws InterruptedException {
+        File file = segmentDecoderPool.peek();
+        log.debug("processing file={}", file.getName());
+        try {
+            segmentDecoderPool.dispatchNext(commitLogReadHandler::send);
+            // wait for all in-flight mutations before flushing the offset and transferring the commitlog
+            commitLogReadHandler.drain();
+            log.debug("Successfully processed commitlog file={}", file.getName());
+            offsetWriter.flush(); // flush sent offset after each CL file
+            commitLogTransfer.onSuccessTransfer(file.toPath());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to read commitlog file=" + file.getName(), e);
+            commitLogTransfer.onErrorTransfer(file.toPath());
+        }
+    }
+
     @Override
     public void initialize() throws Exception {
 
@@ -124,5 +176,6 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
      */
     @Override
     public void close() {
+        commitLogReadHandler.close();
     }
 }
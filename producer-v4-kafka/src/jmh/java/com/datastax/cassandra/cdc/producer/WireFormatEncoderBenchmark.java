@@ -0,0 +1,114 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.MutationValue;
+import com.google.common.collect.ImmutableMap;
+import io.confluent.connect.avro.AvroConverter;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.ReflectionAvroSerializer;
+import org.apache.avro.Conversions;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the Kafka Connect converter and the Confluent reflection serializer with the {@link WireFormatEncoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireFormatEncoderBenchmark {
+
+    static final String TOPIC = "events-ks1.table1";
+
+    Schema keySchema;
+    List<CellData> primaryKey;
+    MutationValue mutationValue;
+
+    AvroConverter keyConverter;
+    ReflectionAvroSerializer<MutationValue> valueSerializer;
+
+    WireFormatEncoder<List<CellData>> keyEncoder;
+    WireFormatEncoder<MutationValue> valueEncoder;
+
+    @Setup
+    public void setup() throws IOException {
+        ReflectData.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
+        MockSchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
+        Map<String, String> converterConfig = ImmutableMap.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://");
+
+        keySchema = SchemaBuilder.struct()
+                .name("ks1.table1")
+                .version(1)
+                .field("a", SchemaBuilder.string().optional().build())
+                .field("b", SchemaBuilder.int32().optional().build())
+                .field("c", SchemaBuilder.int64().optional().build())
+                .build();
+        primaryKey = Arrays.asList(
+                new CellData("a", "a-partition-key", null, CellData.ColumnType.PARTITION),
+                new CellData("b", 42, null, CellData.ColumnType.CLUSTERING),
+                new CellData("c", 1234567890L, null, CellData.ColumnType.CLUSTERING));
+        mutationValue = new MutationValue(UUID.randomUUID().toString(), UUID.randomUUID(), new String[] {"d", "e"});
+
+        keyConverter = new AvroConverter(schemaRegistryClient);
+        keyConverter.configure(converterConfig, true);
+        valueSerializer = new ReflectionAvroSerializer<>(schemaRegistryClient);
+        valueSerializer.configure(converterConfig, false);
+
+        ReflectData.AllowNull.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
+        org.apache.avro.Schema valueSchema = ReflectData.AllowNull.get().getSchema(MutationValue.class);
+        keyEncoder = WireFormatEncoder.keyEncoder(schemaRegistryClient, TOPIC + "-key", new AvroData(1).fromConnectSchema(keySchema));
+        valueEncoder = WireFormatEncoder.valueEncoder(schemaRegistryClient, TOPIC + "-value", valueSchema,
+                new ReflectDatumWriter<>(valueSchema, ReflectData.AllowNull.get()));
+    }
+
+    @Benchmark
+    public byte[] converterKey() {
+        Struct struct = new Struct(keySchema);
+        for (CellData cellData : primaryKey) {
+            struct.put(cellData.name, cellData.value);
+        }
+        return keyConverter.fromConnectData(TOPIC, keySchema, struct);
+    }
+
+    @Benchmark
+    public byte[] encoderKey() throws IOException {
+        return keyEncoder.encode(primaryKey);
+    }
+
+    @Benchmark
+    public byte[] serializerValue() {
+        return valueSerializer.serialize(TOPIC, mutationValue);
+    }
+
+    @Benchmark
+    public byte[] encoderValue() throws IOException {
+        return valueEncoder.encode(mutationValue);
+    }
+}
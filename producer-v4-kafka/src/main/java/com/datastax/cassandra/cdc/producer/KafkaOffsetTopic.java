@@ -0,0 +1,124 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Store the node offsets in a compacted kafka topic, where the key and the value are UTF-8 strings.
+ * The kafka producer is shared with the {@link KafkaMutationSender}, the topic is read once on startup by a
+ * short-lived consumer without consumer group, within {@link ProducerConfig#offsetTopicReadTimeoutMs}.
+ */
+@Slf4j
+public class KafkaOffsetTopic implements OffsetTopic {
+
+    final ProducerConfig config;
+    final KafkaMutationSender kafkaMutationSender;
+
+    public KafkaOffsetTopic(ProducerConfig config, KafkaMutationSender kafkaMutationSender) {
+        this.config = config;
+        this.kafkaMutationSender = kafkaMutationSender;
+    }
+
+    @Override
+    public CompletionStage<RecordMetadata> publish(String key, String value) throws Exception {
+        if (kafkaMutationSender.kafkaProducer == null) {
+            kafkaMutationSender.initialize(config); // lazy init
+        }
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(config.offsetTopic,
+                key.getBytes(StandardCharsets.UTF_8),
+                value.getBytes(StandardCharsets.UTF_8));
+        final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        kafkaMutationSender.kafkaProducer.send(record, (metadata, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(metadata);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public String read(String key) throws TimeoutException {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.kafkaBrokers);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "cdc-offset-reader-" + key);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        config.configureKafkaTls(props);
+        props.putAll(config.kafkaProperties);
+
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final long deadline = System.currentTimeMillis() + config.offsetTopicReadTimeoutMs;
+        try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(props)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(config.offsetTopic, remaining(deadline));
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return null;
+            }
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo partitionInfo : partitionInfos) {
+                partitions.add(new TopicPartition(partitionInfo.topic(), partitionInfo.partition()));
+            }
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions, remaining(deadline));
+
+            // the records of a key are in the same partition, the last one wins
+            String value = null;
+            while (partitions.stream().anyMatch(p -> consumer.position(p, remaining(deadline)) < endOffsets.get(p))) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new TimeoutException("Offset topic " + config.offsetTopic + " not read in " + config.offsetTopicReadTimeoutMs + "ms");
+                }
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(remaining(deadline))) {
+                    if (Arrays.equals(keyBytes, record.key())) {
+                        value = record.value() == null ? null : new String(record.value(), StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            return value;
+        }
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofMillis(Math.max(0L, deadline - System.currentTimeMillis()));
+    }
+
+    @Override
+    public void close() {
+        // the kafka producer is closed by the kafka mutation sender
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cdc.producer;
+
+import com.datastax.cassandra.cdc.MutationValue;
+import com.datastax.cassandra.cdc.producer.CellData;
+import com.datastax.cassandra.cdc.producer.WireFormatEncoder;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WireFormatEncoderTests {
+
+    static {
+        ReflectData.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
+    }
+
+    final MockSchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
+
+    static <T> T decode(byte[] bytes, int schemaId, DatumReader<T> reader) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        assertEquals(WireFormatEncoder.MAGIC_BYTE, buffer.get());
+        assertEquals(schemaId, buffer.getInt());
+        return reader.read(null, DecoderFactory.get().binaryDecoder(bytes, buffer.position(), buffer.remaining(), null));
+    }
+
+    @Test
+    public void testSingleColumnKey() throws IOException, RestClientException {
+        Schema schema = SchemaBuilder.builder().nullable().stringType();
+        WireFormatEncoder<List<CellData>> encoder = WireFormatEncoder.keyEncoder(schemaRegistryClient, "events-ks1.table1-key", schema);
+        int schemaId = schemaRegistryClient.getId("events-ks1.table1-key", new AvroSchema(schema));
+
+        UUID uuid = UUID.randomUUID();
+        byte[] bytes = encoder.encode(Collections.singletonList(new CellData("id", uuid, null, CellData.ColumnType.PARTITION)));
+        assertEquals(new Utf8(uuid.toString()), decode(bytes, schemaId, new GenericDatumReader<>(schema)));
+    }
+
+    @Test
+    public void testCompoundKey() throws IOException, RestClientException {
+        Schema schema = SchemaBuilder.record("ks1.table2").fields()
+                .optionalString("a")
+                .optionalInt("b")
+                .optionalLong("c")
+                .endRecord();
+        WireFormatEncoder<List<CellData>> encoder = WireFormatEncoder.keyEncoder(schemaRegistryClient, "events-ks1.table2-key", schema);
+        int schemaId = schemaRegistryClient.getId("events-ks1.table2-key", new AvroSchema(schema));
+
+        for (int i = 0; i < 3; i++) {
+            byte[] bytes = encoder.encode(Arrays.asList(
+                    new CellData("a", "key" + i, null, CellData.ColumnType.PARTITION),
+                    new CellData("b", i, null, CellData.ColumnType.CLUSTERING),
+                    new CellData("c", i == 1 ? null : 10L * i, null, CellData.ColumnType.CLUSTERING)));
+            GenericRecord record = decode(bytes, schemaId, new GenericDatumReader<>(schema));
+            assertEquals(new Utf8("key" + i), record.get("a"));
+            assertEquals(i, record.get("b"));
+            assertEquals(i == 1 ? null : 10L * i, record.get("c"));
+        }
+    }
+
+    @Test
+    public void testValue() throws IOException, RestClientException {
+        Schema schema = ReflectData.get().getSchema(MutationValue.class);
+        WireFormatEncoder<MutationValue> encoder = WireFormatEncoder.valueEncoder(schemaRegistryClient, "events-ks1.table1-value", schema,
+                new ReflectDatumWriter<>(schema, ReflectData.get()));
+        int schemaId = schemaRegistryClient.getId("events-ks1.table1-value", new AvroSchema(schema));
+
+        MutationValue value = new MutationValue("digest", UUID.randomUUID(), new String[] {"a", "b"});
+        MutationValue decoded = decode(encoder.encode(value), schemaId, new ReflectDatumReader<>(schema, schema, ReflectData.get()));
+        assertEquals(value.getMd5Digest(), decoded.getMd5Digest());
+        assertEquals(value.getNodeId(), decoded.getNodeId());
+        assertArrayEquals(value.getColumns(), decoded.getColumns());
+    }
+}
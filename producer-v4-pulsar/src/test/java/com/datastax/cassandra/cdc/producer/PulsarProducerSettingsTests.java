@@ -0,0 +1,117 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.MutationValue;
+import com.datastax.testcontainers.pulsar.PulsarContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericSchema;
+import org.apache.pulsar.client.api.schema.RecordSchemaBuilder;
+import org.apache.pulsar.client.api.schema.SchemaBuilder;
+import org.apache.pulsar.common.schema.KeyValue;
+import org.apache.pulsar.common.schema.KeyValueEncodingType;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compare the producer throughput of the pulsar batching and compression settings.
+ */
+@Slf4j
+public class PulsarProducerSettingsTests {
+
+    public static final int MESSAGES = 20000;
+
+    private static PulsarContainer<?> pulsarContainer;
+
+    @BeforeAll
+    public static final void initBeforeClass() throws Exception {
+        pulsarContainer = new PulsarContainer<>(PulsarProducerV4Tests.PULSAR_IMAGE)
+                .withStartupTimeout(Duration.ofSeconds(30));
+        pulsarContainer.start();
+    }
+
+    @AfterAll
+    public static void closeAfterAll() {
+        pulsarContainer.close();
+    }
+
+    @Test
+    public void testUnsupportedBatcherType() {
+        assertThrows(IllegalArgumentException.class, () -> PulsarMutationSender.batcherBuilder("foo"));
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("default", null);
+        settings.put("lz4", "pulsarCompressionType=LZ4");
+        settings.put("lz4-delay10ms", "pulsarCompressionType=LZ4,pulsarBatchDelayInMs=10");
+        settings.put("zstd-delay10ms", "pulsarCompressionType=ZSTD,pulsarBatchDelayInMs=10");
+        settings.put("snappy-delay5ms", "pulsarCompressionType=SNAPPY,pulsarBatchDelayInMs=5,pulsarMaxPendingMessages=5000");
+
+        Map<String, Long> results = new LinkedHashMap<>();
+        try (PulsarClient pulsarClient = PulsarClient.builder().serviceUrl(pulsarContainer.getPulsarBrokerUrl()).build()) {
+            for (Map.Entry<String, String> entry : settings.entrySet()) {
+                ProducerConfig config = ProducerConfig.create(ProducerConfig.Plateform.PULSAR, entry.getValue());
+                results.put(entry.getKey(), sendMessages(pulsarClient, config, "throughput-" + entry.getKey()));
+            }
+        }
+        results.forEach((name, rate) -> log.info("settings={} throughput={} msg/s", name, rate));
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    long sendMessages(PulsarClient pulsarClient, ProducerConfig config, String topicName) throws Exception {
+        RecordSchemaBuilder recordSchemaBuilder = SchemaBuilder.record("ks1.table1");
+        recordSchemaBuilder.field("id").type(SchemaType.STRING);
+        Schema<GenericRecord> keySchema = Schema.generic(recordSchemaBuilder.build(SchemaType.AVRO));
+        Schema<KeyValue<GenericRecord, MutationValue>> schema = Schema.KeyValue(
+                keySchema,
+                Schema.AVRO(MutationValue.class),
+                KeyValueEncodingType.SEPARATED);
+
+        UUID nodeId = UUID.randomUUID();
+        try (Producer<KeyValue<GenericRecord, MutationValue>> producer = PulsarMutationSender.configureProducer(pulsarClient.newProducer(schema), config)
+                .topic(topicName)
+                .create()) {
+            List<CompletableFuture<MessageId>> futures = new ArrayList<>(MESSAGES);
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                GenericRecord key = ((GenericSchema) keySchema).newRecordBuilder().set("id", Integer.toString(i % 1000)).build();
+                MutationValue value = new MutationValue(UUID.randomUUID().toString(), nodeId, null);
+                futures.add(producer.newMessage().value(new KeyValue(key, value)).sendAsync());
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+            assertEquals(MESSAGES, futures.stream().filter(f -> !f.isCompletedExceptionally()).count());
+            return MESSAGES * 1_000_000_000L / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the {@link OffsetFileWriter} with the {@link MappedOffsetWriter}, for an offset update
+ * and for a durable offset update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OffsetWriterBenchmark {
+
+    @Param({"file", "mmap"})
+    String offsetStore;
+
+    OffsetWriter offsetWriter;
+    Mutation<String> mutation;
+
+    @Setup
+    public void setup() throws IOException {
+        ProducerConfig config = new ProducerConfig();
+        config.offsetStore = offsetStore;
+        // flush on explicit flush only
+        config.offsetFlushIntervalMs = 3600000L;
+        config.offsetFlushMaxMutations = Long.MAX_VALUE;
+        offsetWriter = OffsetWriter.create(config, Files.createTempDirectory("offset").toString());
+        mutation = new Mutation<>(new CommitLogPosition(1, 0), new SourceInfo("cluster", UUID.randomUUID(), "ks", "table"),
+                new RowData(), true, 0L, "digest", "table");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ((AutoCloseable) offsetWriter).close();
+    }
+
+    @Benchmark
+    public void markOffset() {
+        offsetWriter.markOffset(mutation);
+    }
+
+    @Benchmark
+    public void markAndFlushOffset() throws IOException {
+        offsetWriter.markOffset(mutation);
+        offsetWriter.flush(Optional.empty());
+    }
+}
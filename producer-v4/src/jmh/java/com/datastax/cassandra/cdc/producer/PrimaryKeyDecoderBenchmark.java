@@ -0,0 +1,118 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.marshal.CompositeType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableId;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the per-row generic decoding of the primary key with the {@link PrimaryKeyDecoder}
+ * for a wide partition update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimaryKeyDecoderBenchmark {
+
+    @Param({"1", "1000"})
+    int rows;
+
+    TableMetadata tm;
+    ByteBuffer partitionKey;
+    List<Clustering<ByteBuffer>> clusterings;
+    PrimaryKeyDecoder decoder;
+
+    @Setup
+    public void setup() {
+        DatabaseDescriptor.clientInitialization();
+        tm = TableMetadata.builder("ks1", "table1")
+                .id(TableId.fromUUID(UUID.randomUUID()))
+                .partitioner(Murmur3Partitioner.instance)
+                .addPartitionKeyColumn("a", UTF8Type.instance)
+                .addPartitionKeyColumn("b", Int32Type.instance)
+                .addClusteringColumn("c", Int32Type.instance)
+                .addClusteringColumn("d", UTF8Type.instance)
+                .addRegularColumn("e", UTF8Type.instance)
+                .build();
+        partitionKey = ((CompositeType) tm.partitionKeyType).decompose("a-partition-key", 42);
+        clusterings = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            clusterings.add(Clustering.make(Int32Type.instance.decompose(i), UTF8Type.instance.decompose("clustering-" + i)));
+        }
+        decoder = new PrimaryKeyDecoder(tm, "cluster", UUID.randomUUID());
+    }
+
+    @Benchmark
+    public void genericDecoding(Blackhole bh) {
+        for (Clustering<ByteBuffer> clustering : clusterings) {
+            RowData after = new RowData();
+            List<Object> partitionKeys = getPartitionKeys(tm, partitionKey);
+            for (ColumnMetadata cd : tm.partitionKeyColumns()) {
+                after.addCell(new CellData(cd.name.toString(), partitionKeys.get(cd.position()), null, CellData.ColumnType.PARTITION));
+            }
+            for (ColumnMetadata cd : tm.clusteringColumns()) {
+                Object value = cd.type.compose(clustering.accessor().toBuffer(clustering.get(cd.position())));
+                after.addCell(new CellData(cd.name.toString(), value, null, CellData.ColumnType.CLUSTERING));
+            }
+            bh.consume(after);
+        }
+    }
+
+    @Benchmark
+    public void precompiledDecoding(Blackhole bh) {
+        CellData[] partitionKeyCells = decoder.partitionKeyCells(decoder.decodePartitionKey(partitionKey));
+        for (Clustering<ByteBuffer> clustering : clusterings) {
+            RowData after = new RowData(decoder.layout);
+            decoder.populatePartitionColumns(after, partitionKeyCells);
+            decoder.populateClusteringColumns(after, clustering);
+            bh.consume(after);
+        }
+    }
+
+    /**
+     * The per-row partition key decoding replaced by the {@link PrimaryKeyDecoder}.
+     */
+    static List<Object> getPartitionKeys(TableMetadata tm, ByteBuffer key) {
+        List<Object> values = new ArrayList<>();
+        List<ColumnMetadata> columnDefinitions = tm.partitionKeyColumns();
+        ByteBuffer keyBytes = key.duplicate();
+        int i = 0;
+        while (keyBytes.remaining() > 0 && i < columnDefinitions.size()) {
+            values.add(columnDefinitions.get(i).type.compose(ByteBufferUtil.readBytesWithShortLength(keyBytes)));
+            if (keyBytes.get() != 0) {
+                break;
+            }
+            ++i;
+        }
+        return values;
+    }
+}
@@ -19,6 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.cassandra.db.commitlog.CommitLogPosition;
 import org.apache.cassandra.db.commitlog.CommitLogReader;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.schema.TableMetadata;
 
 import java.io.File;
 import java.io.IOException;
@@ -28,7 +29,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -48,9 +49,18 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
 
     private CountDownLatch syncedOffsetLatch = new CountDownLatch(1);
 
-    private final PriorityBlockingQueue<File> commitLogQueue = new PriorityBlockingQueue<>(128, CommitLogUtil::compareCommitLogs);
+    // one entry per segment, the _cdc.idx updates of a queued segment are absorbed
+    private final SegmentQueue commitLogQueue = new SegmentQueue() {
+        @Override
+        protected void onAbsorbed(File file) {
+            CdcMetrics.absorbedSubmissions.inc();
+        }
+    };
 
     private final CommitLogReadHandlerImpl commitLogReadHandler;
+    private final CommitLogTailer commitLogTailer = new CommitLogTailer();
+    // decode the sync sections of completed segments when sectionDecoderThreads > 1
+    private final ForkJoinPool sectionDecoderPool;
     private final OffsetWriter offsetWriter;
     private final CommitLogTransfer commitLogTransfer;
     private final ProducerConfig config;
@@ -64,6 +74,7 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
         this.commitLogReadHandler = commitLogReadHandler;
         this.offsetWriter = offsetWriter;
         this.commitLogTransfer = commitLogTransfer;
+        this.sectionDecoderPool = config.sectionDecoderThreads > 1 ? new ForkJoinPool(config.sectionDecoderThreads) : null;
     }
 
     public void submitCommitLog(File file)  {
@@ -108,12 +119,23 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
         syncedOffsetLatch.await();
     }
 
+    /**
+     * Read the commitlog files in segment order. When {@link ProducerConfig#segmentDecoderThreads} is greater than 1,
+     * the next completed files are decoded concurrently while the mutations of the oldest one are sent.
+     * The active segment is read once all the previous segments are processed.
+     */
     @Override
     public void process() throws InterruptedException {
         assert this.offsetWriter.offset().segmentId <= this.syncedOffsetRef.get().segmentId || this.offsetWriter.offset().position <= this.offsetWriter.offset().position : "file offset is greater than synced offset";
+        SegmentDecoderPool<TableMetadata> segmentDecoderPool = commitLogReadHandler.segmentDecoderPool;
         File file = null;
         while(true) {
-            file = this.commitLogQueue.take();
+            file = segmentDecoderPool.isEmpty() ? this.commitLogQueue.take() : this.commitLogQueue.poll();
+            if (file == null) {
+                // no more files to decode ahead
+                processDecodedSegment(segmentDecoderPool);
+                continue;
+            }
 
             if (!file.exists()) {
                 log.debug("file={} does not exist any more, ignoring", file.getName());
@@ -131,27 +153,65 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
                 log.debug("Ignore a not synced file={}, last synced offset={}", file.getName(), this.syncedOffsetRef.get());
                 continue;
             }
-            log.debug("processing file={} synced offset={}", file.getName(), this.syncedOffsetRef.get());
             assert seg <= this.syncedOffsetRef.get().segmentId: "reading a commitlog ahead the last synced offset";
 
-            CommitLogReader commitLogReader = new CommitLogReader();
+            CommitLogPosition syncedOffset = this.syncedOffsetRef.get();
+            boolean completed = seg < syncedOffset.segmentId;
+            if (segmentDecoderPool.isEnabled()) {
+                if (segmentDecoderPool.contains(file)) {
+                    log.debug("Ignoring file={} already submitted", file.getName());
+                    continue;
+                }
+                if (completed && !commitLogTailer.isTailing(file)) {
+                    log.debug("decoding file={} synced offset={}", file.getName(), syncedOffset);
+                    CommitLogPosition minPosition = minPosition(seg);
+                    segmentDecoderPool.submit(file, f -> readCompletedSegment(f, minPosition));
+                    if (segmentDecoderPool.isFull()) {
+                        processDecodedSegment(segmentDecoderPool);
+                    }
+                    continue;
+                }
+                // process the previous segments first
+                while (!segmentDecoderPool.isEmpty()) {
+                    processDecodedSegment(segmentDecoderPool);
+                }
+            }
+            log.debug("processing file={} synced offset={}", file.getName(), syncedOffset);
+
             try {
-                // hack to use a dummy min position for segment ahead of the offsetFile.
-                CommitLogPosition minPosition = (seg > offsetWriter.offset().segmentId)
-                        ? new CommitLogPosition(seg, 0)
-                        : new CommitLogPosition(offsetWriter.offset().getSegmentId(), offsetWriter.offset().getPosition());
+                CommitLogPosition minPosition = minPosition(seg);
 
-                commitLogReader.readCommitLogSegment(commitLogReadHandler, file, minPosition, false);
+                int checkpoint = 0;
+                if (commitLogTailer.isTailing(file) || (!completed && commitLogTailer.open(file, checkpoint(seg)))) {
+                    // only decode the sections synced since the previous read, up to the end of a completed segment
+                    checkpoint = commitLogTailer.read(commitLogReadHandler, completed ? Integer.MAX_VALUE : syncedOffset.position, minPosition.position);
+                    if (completed) {
+                        commitLogTailer.close();
+                    }
+                } else if (completed) {
+                    readCompletedSegment(file, minPosition);
+                } else {
+                    CommitLogReader commitLogReader = new CommitLogReader();
+                    commitLogReader.readCommitLogSegment(commitLogReadHandler, file, minPosition, false);
+                }
+                // wait for all in-flight mutations before flushing the offset and transferring the commitlog
+                commitLogReadHandler.drain();
                 log.debug("Successfully processed commitlog completed={} minPosition={} file={}",
-                        seg < this.syncedOffsetRef.get().segmentId, minPosition, file.getName());
+                        completed, minPosition, file.getName());
+                if (checkpoint > 0) {
+                    // the sections before the checkpoint are fully acknowledged
+                    offsetWriter.markCheckpoint(new com.datastax.cassandra.cdc.producer.CommitLogPosition(seg, checkpoint));
+                }
                 offsetWriter.flush(); // flush sent offset after each CL file
-                if (seg < this.syncedOffsetRef.get().segmentId) {
+                if (completed) {
                     // do not transfer the active commitlog on Cassandra 4.x
                     commitLogTransfer.onSuccessTransfer(file.toPath());
                 }
             } catch(Exception e) {
-                log.warn("Failed to read commitlog completed="+(seg < this.syncedOffsetRef.get().segmentId)+" file="+file.getName(), e);
-                if (seg < this.syncedOffsetRef.get().segmentId) {
+                // re-open the segment on the next synced position
+                commitLogTailer.close();
+                log.warn("Failed to read commitlog completed="+completed+" file="+file.getName(), e);
+                if (completed) {
                     // do not transfer the active commitlog on Cassandra 4.x
                     commitLogTransfer.onErrorTransfer(file.toPath());
                 }
@@ -159,6 +219,63 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
         }
     }
 
+    /**
+     * Send the mutations of the oldest decoded segment, and transfer it once all its mutations are acknowledged.
+     */
+    private void processDecodedSegment(SegmentDecoderPool<TableMetadata> segmentDecoderPool) throws InterruptedException {
+        File file = segmentDecoderPool.peek();
+        log.debug("processing file={}", file.getName());
+        try {
+            segmentDecoderPool.dispatchNext(commitLogReadHandler::send);
+            // wait for all in-flight mutations before flushing the offset and transferring the commitlog
+            commitLogReadHandler.drain();
+            log.debug("Successfully processed commitlog completed=true file={}", file.getName());
+            offsetWriter.flush(); // flush sent offset after each CL file
+            commitLogTransfer.onSuccessTransfer(file.toPath());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to read commitlog completed=true file=" + file.getName(), e);
+            commitLogTransfer.onErrorTransfer(file.toPath());
+        }
+    }
+
+    /**
+     * Read a completed segment, decoding its sync sections concurrently when enabled.
+     * A partly processed segment is read from its sync section checkpoint.
+     */
+    private void readCompletedSegment(File file, CommitLogPosition minPosition) throws Exception {
+        if (sectionDecoderPool != null || minPosition.position > 0) {
+            try (CommitLogTailer segmentTailer = new CommitLogTailer()) {
+                if (segmentTailer.open(file, checkpoint(minPosition.segmentId))) {
+                    if (sectionDecoderPool != null) {
+                        segmentTailer.readSections(commitLogReadHandler, minPosition.position, sectionDecoderPool);
+                    } else {
+                        segmentTailer.read(commitLogReadHandler, Integer.MAX_VALUE, minPosition.position);
+                    }
+                    return;
+                }
+            }
+        }
+        CommitLogReader commitLogReader = new CommitLogReader();
+        commitLogReader.readCommitLogSegment(commitLogReadHandler, file, minPosition, false);
+    }
+
+    /**
+     * @return the persisted sync section checkpoint of the segment, or 0.
+     */
+    private int checkpoint(long seg) {
+        com.datastax.cassandra.cdc.producer.CommitLogPosition checkpoint = offsetWriter.checkpoint();
+        return checkpoint != null && checkpoint.segmentId == seg ? checkpoint.position : 0;
+    }
+
+    // hack to use a dummy min position for segment ahead of the offsetFile.
+    private CommitLogPosition minPosition(long seg) {
+        return (seg > offsetWriter.offset().segmentId)
+                ? new CommitLogPosition(seg, 0)
+                : new CommitLogPosition(offsetWriter.offset().getSegmentId(), offsetWriter.offset().getPosition());
+    }
+
     @Override
     public void initialize() throws Exception {
 
@@ -189,5 +306,10 @@ public class CommitLogReaderProcessor extends AbstractProcessor implements AutoC
      */
     @Override
     public void close() {
+        commitLogTailer.close();
+        commitLogReadHandler.close();
+        if (sectionDecoderPool != null) {
+            sectionDecoderPool.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,285 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.apache.cassandra.db.commitlog.CommitLogPosition;
+import org.apache.cassandra.db.commitlog.CommitLogReadHandler;
+import org.apache.cassandra.db.commitlog.CommitLogReader;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * Tail the active commitlog segment on Cassandra 4.x.
+ *
+ * The segment is kept memory-mapped between two _cdc.idx updates, and only the sync sections synced since the previous read
+ * are decoded, instead of reopening and re-walking the segment from its start on each update.
+ * Compressed and encrypted segments are not tailed, they are read with the {@link CommitLogReader} once completed.
+ *
+ * A completed segment can also be read by {@link #readSections(CommitLogReadHandlerImpl, int, ForkJoinPool)},
+ * decoding its independent sync sections concurrently.
+ */
+@Slf4j
+public class CommitLogTailer extends CommitLogReader implements AutoCloseable {
+    // sync marker: the position of the next sync marker and a CRC of the segment id and marker position
+    private static final int SYNC_MARKER_SIZE = 8;
+    // entry: the mutation size, the size CRC, the serialized mutation and the mutation CRC
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final int ENTRY_CRC_SIZE = 4;
+
+    private final CRC32 checksum = new CRC32();
+    private byte[] buffer = new byte[4096];
+
+    private File file;
+    private CommitLogDescriptor descriptor;
+    private MappedByteBuffer mapped;
+    // position of the next sync marker to read
+    private int sectionPosition;
+    private boolean endOfSegment;
+
+    public CommitLogTailer() {
+    }
+
+    /**
+     * Section reader sharing the mapped segment of the opened tailer, it must not be closed.
+     */
+    CommitLogTailer(CommitLogTailer tailer) {
+        this.file = tailer.file;
+        this.descriptor = tailer.descriptor;
+        this.mapped = tailer.mapped;
+    }
+
+    /**
+     * @return true if the commitlog file is the tailed segment.
+     */
+    public boolean isTailing(File file) {
+        return this.file != null && this.file.equals(file);
+    }
+
+    /**
+     * @return the position of the next sync section to read in the tailed segment.
+     */
+    public int position() {
+        return sectionPosition;
+    }
+
+    /**
+     * Open a commitlog segment for tailing, closing the previously tailed segment.
+     * @return false if the segment cannot be tailed.
+     */
+    public boolean open(File file) throws IOException {
+        return open(file, 0);
+    }
+
+    /**
+     * Open a commitlog segment for tailing from a sync section checkpoint, closing the previously tailed segment.
+     * @param checkpoint the position of a sync section of the segment, ignored if it is not a valid sync marker.
+     * @return false if the segment cannot be tailed.
+     */
+    public boolean open(File file, int checkpoint) throws IOException {
+        close();
+        MappedByteBuffer mapped = map(file);
+        ByteBuffer header = mapped.duplicate();
+        CommitLogDescriptor descriptor = CommitLogDescriptor.readHeader(new DataInputBuffer(header, false), DatabaseDescriptor.getEncryptionContext());
+        if (descriptor == null
+                || descriptor.compression != null
+                || (descriptor.getEncryptionContext() != null && descriptor.getEncryptionContext().isEnabled())) {
+            log.debug("Cannot tail commitlog file={} descriptor={}", file.getName(), descriptor);
+            FileUtils.clean(mapped);
+            return false;
+        }
+        this.file = file;
+        this.descriptor = descriptor;
+        this.mapped = mapped;
+        this.sectionPosition = header.position();
+        this.endOfSegment = false;
+        if (checkpoint > sectionPosition && checkpoint + SYNC_MARKER_SIZE <= mapped.capacity() && readSyncMarker(checkpoint) > checkpoint) {
+            // skip the sync sections before the checkpoint without walking their markers
+            this.sectionPosition = checkpoint;
+        }
+        log.debug("Tailing commitlog file={} from position={}", file.getName(), sectionPosition);
+        return true;
+    }
+
+    static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping remains valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Decode the mutations of the sync sections ending before the synced position.
+     * @param syncedPosition the synced position of the segment, read from the _cdc.idx file.
+     * @param minPosition the sync sections ending before this position are skipped.
+     * @return the position of the next sync section to read.
+     */
+    public int read(CommitLogReadHandler handler, int syncedPosition, int minPosition) throws IOException {
+        if (syncedPosition > mapped.capacity() && file.length() > mapped.capacity()) {
+            // the segment was not fully allocated when mapped
+            MappedByteBuffer remapped = map(file);
+            FileUtils.clean(mapped);
+            mapped = remapped;
+        }
+        int end = Math.min(syncedPosition, mapped.capacity());
+        while (!endOfSegment && sectionPosition + SYNC_MARKER_SIZE <= end) {
+            int nextMarker = readSyncMarker(sectionPosition);
+            if (nextMarker < 0 || nextMarker > end) {
+                // section not synced yet
+                break;
+            }
+            if (nextMarker <= sectionPosition) {
+                endOfSegment = true;
+                break;
+            }
+            if (nextMarker > minPosition) {
+                readSection(handler, sectionPosition + SYNC_MARKER_SIZE, nextMarker, minPosition);
+            }
+            sectionPosition = nextMarker;
+        }
+        return sectionPosition;
+    }
+
+    /**
+     * Read a completed segment, decoding its sync sections concurrently and sending their mutations in commitlog order,
+     * as the {@link CommitLogReader} would. The segment must be opened.
+     * @param minPosition the sync sections ending before this position are skipped.
+     */
+    public void readSections(CommitLogReadHandlerImpl handler, int minPosition, ForkJoinPool executor) throws Exception {
+        // find the section boundaries first, the sync markers are cheap to check
+        List<int[]> sections = new ArrayList<>();
+        int end = mapped.capacity();
+        while (sectionPosition + SYNC_MARKER_SIZE <= end) {
+            int nextMarker = readSyncMarker(sectionPosition);
+            if (nextMarker <= sectionPosition || nextMarker > end) {
+                // end of segment, or unsynced section of a segment not properly closed
+                break;
+            }
+            if (nextMarker > minPosition) {
+                sections.add(new int[] { sectionPosition + SYNC_MARKER_SIZE, nextMarker });
+            }
+            sectionPosition = nextMarker;
+        }
+        endOfSegment = true;
+
+        SegmentDecoderPool<TableMetadata> segmentDecoderPool = handler.segmentDecoderPool;
+        log.debug("Decoding commitlog file={} sections={}", file.getName(), sections.size());
+        // decode ahead as many sections as the pool threads, each holding at most its buffered mutations
+        Deque<SegmentDecoderPool.Decoded<TableMetadata>> decodedSections = new ArrayDeque<>(executor.getParallelism());
+        try {
+            int next = 0;
+            while (next < sections.size() || !decodedSections.isEmpty()) {
+                while (next < sections.size() && decodedSections.size() < executor.getParallelism()) {
+                    final int[] section = sections.get(next++);
+                    decodedSections.addLast(segmentDecoderPool.decode(executor, () -> {
+                        CommitLogTailer sectionReader = sectionReader();
+                        sectionReader.readSection(handler, section[0], section[1], minPosition);
+                    }));
+                }
+                // re-sequence the decoded sections
+                segmentDecoderPool.dispatch(decodedSections.peekFirst(), handler::send);
+                decodedSections.pollFirst();
+            }
+        } finally {
+            for (SegmentDecoderPool.Decoded<TableMetadata> decodedSection : decodedSections) {
+                decodedSection.cancel();
+            }
+        }
+    }
+
+    CommitLogTailer sectionReader() {
+        return new CommitLogTailer(this);
+    }
+
+    /**
+     * @return the position of the next sync marker, 0 at the end of the segment, or -1 if the sync marker is not written yet.
+     */
+    private int readSyncMarker(int position) {
+        checksum.reset();
+        FBUtilities.updateChecksumInt(checksum, (int) (descriptor.id & 0xFFFFFFFFL));
+        FBUtilities.updateChecksumInt(checksum, (int) (descriptor.id >>> 32));
+        FBUtilities.updateChecksumInt(checksum, position);
+        int nextMarker = mapped.getInt(position);
+        long crc = mapped.getInt(position + 4) & 0xFFFFFFFFL;
+        return crc == checksum.getValue() ? nextMarker : -1;
+    }
+
+    /**
+     * Decode the entries of a sync section, the entries ending at or before minPosition are skipped without being deserialized.
+     */
+    private void readSection(CommitLogReadHandler handler, int start, int end, int minPosition) throws IOException {
+        int position = start;
+        while (position + ENTRY_HEADER_SIZE <= end) {
+            int size = mapped.getInt(position);
+            if (size == 0) {
+                // end of section marker
+                break;
+            }
+            if (size < 10 || position + ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE > end) {
+                throw new IOException(String.format("Invalid mutation size %d at %d in %s", size, position, file.getName()));
+            }
+            checksum.reset();
+            FBUtilities.updateChecksumInt(checksum, size);
+            if (checksum.getValue() != (mapped.getInt(position + 4) & 0xFFFFFFFFL)) {
+                throw new IOException(String.format("Mutation size checksum failure at %d in %s", position, file.getName()));
+            }
+            if (position + ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE <= minPosition) {
+                // already processed, the offset is the end position of the last processed entry as in the CommitLogReader
+                position += ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE;
+                continue;
+            }
+            if (buffer.length < size) {
+                buffer = new byte[(int) (1.2 * size)];
+            }
+            ByteBuffer entry = mapped.duplicate();
+            entry.position(position + ENTRY_HEADER_SIZE);
+            entry.get(buffer, 0, size);
+            checksum.update(buffer, 0, size);
+            if (checksum.getValue() != (entry.getInt() & 0xFFFFFFFFL)) {
+                throw new IOException(String.format("Mutation checksum failure at %d in %s", position, file.getName()));
+            }
+            position = entry.position();
+            readMutation(handler, buffer, size, CommitLogPosition.NONE, position, descriptor);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (mapped != null) {
+            FileUtils.clean(mapped);
+            mapped = null;
+        }
+        file = null;
+        descriptor = null;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.ClusteringRange;
+import io.debezium.DebeziumException;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.ClusteringBound;
+import org.apache.cassandra.db.Slice;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.ValueAccessor;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decoders of the primary key columns of a table, with its {@link ColumnLayout} and {@link SourceInfo}, precomputed once per table metadata.
+ *
+ * The partition key is decoded once per partition update, and its cells are shared by all the rows of the update.
+ */
+class PrimaryKeyDecoder {
+    final TableMetadata tm;
+    final ColumnMetadata[] partitionKeyColumns;
+    final String[] partitionKeyNames;
+    final ColumnMetadata[] clusteringColumns;
+    final String[] clusteringNames;
+    final ColumnLayout layout;
+    final SourceInfo source;
+
+    PrimaryKeyDecoder(TableMetadata tm, String cluster, UUID nodeId) {
+        this.tm = tm;
+        this.partitionKeyColumns = tm.partitionKeyColumns().toArray(new ColumnMetadata[0]);
+        this.partitionKeyNames = names(partitionKeyColumns);
+        this.clusteringColumns = tm.clusteringColumns().toArray(new ColumnMetadata[0]);
+        this.clusteringNames = names(clusteringColumns);
+        List<String> regularNames = new ArrayList<>();
+        for (ColumnMetadata cm : tm.regularAndStaticColumns()) {
+            regularNames.add(cm.name.toString());
+        }
+        this.layout = new ColumnLayout(partitionKeyNames, clusteringNames, regularNames.toArray(new String[0]));
+        this.source = new SourceInfo(cluster, nodeId, tm.keyspace, tm.name);
+    }
+
+    static String[] names(ColumnMetadata[] columns) {
+        String[] names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = columns[i].name.toString();
+        }
+        return names;
+    }
+
+    /**
+     * @return true if the decoder was built for this table metadata, table metadata are immutable.
+     */
+    boolean isFor(TableMetadata tm) {
+        return this.tm == tm;
+    }
+
+    /**
+     * Deserialize the partition key byte buffer into the partition key values, in partition key column order.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    Object[] decodePartitionKey(ByteBuffer key) {
+        Object[] values = new Object[partitionKeyColumns.length];
+
+        // simple partition key
+        if (partitionKeyColumns.length == 1) {
+            values[0] = compose(partitionKeyColumns[0], key);
+            return values;
+        }
+
+        ByteBuffer keyBytes = key.duplicate();
+
+        // 0xFFFF is reserved to encode "static column", skip if it exists at the start
+        if (keyBytes.remaining() >= 2) {
+            int header = ByteBufferUtil.getShortLength(keyBytes, keyBytes.position());
+            if ((header & 0xFFFF) == 0xFFFF) {
+                ByteBufferUtil.readShortLength(keyBytes);
+            }
+        }
+
+        // the encoding of columns in the partition key byte buffer is
+        // <col><col><col>...
+        // where <col> is:
+        // <length of value><value><end-of-component byte>
+        // <length of value> is a 2 bytes unsigned short (excluding 0xFFFF used to encode "static columns")
+        // <end-of-component byte> should always be 0 for columns (1 for query bounds)
+        int i = 0;
+        while (keyBytes.remaining() > 0 && i < partitionKeyColumns.length) {
+            values[i] = compose(partitionKeyColumns[i], ByteBufferUtil.readBytesWithShortLength(keyBytes));
+            byte b = keyBytes.get();
+            if (b != 0) {
+                break;
+            }
+            ++i;
+        }
+        return values;
+    }
+
+    static Object compose(ColumnMetadata cm, ByteBuffer bb) {
+        try {
+            return cm.type.compose(bb);
+        }
+        catch (Exception e) {
+            throw new DebeziumException(String.format("Failed to deserialize Column %s with Type %s in Table %s and KeySpace %s.",
+                    cm.name.toString(), cm.type.toString(), cm.cfName, cm.ksName), e);
+        }
+    }
+
+    /**
+     * @return the partition key cells, shared by all the rows of a partition update.
+     */
+    CellData[] partitionKeyCells(Object[] partitionKey) {
+        CellData[] cells = new CellData[partitionKeyNames.length];
+        for (int i = 0; i < partitionKeyNames.length; i++) {
+            cells[i] = new CellData(partitionKeyNames[i], partitionKey[i], null, CellData.ColumnType.PARTITION);
+        }
+        return cells;
+    }
+
+    void populatePartitionColumns(RowData after, CellData[] partitionKeyCells) {
+        for (int i = 0; i < partitionKeyCells.length; i++) {
+            after.setCell(layout.partitionKeyOrdinal(i), partitionKeyCells[i]);
+        }
+    }
+
+    /**
+     * Decode the clustering values with the clustering accessor, without copying them to a byte buffer.
+     */
+    <V> void populateClusteringColumns(RowData after, Clustering<V> clustering) {
+        ValueAccessor<V> accessor = clustering.accessor();
+        for (int i = 0; i < clusteringColumns.length; i++) {
+            AbstractType<?> type = clusteringColumns[i].type;
+            Object value;
+            try {
+                value = type.compose(clustering.get(i), accessor);
+            }
+            catch (Exception e) {
+                ColumnMetadata cm = clusteringColumns[i];
+                throw new DebeziumException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
+                        cm.name.toString(), cm.type.toString(), cm.cfName, cm.ksName), e);
+            }
+            after.setCell(layout.clusteringOrdinal(i), new CellData(clusteringNames[i], value, null, CellData.ColumnType.CLUSTERING));
+        }
+    }
+
+    /**
+     * Populate the clustering columns of a range deletion with null values, and set its clustering bounds.
+     */
+    void populateClusteringRange(RowData after, Slice slice) {
+        for (int i = 0; i < clusteringNames.length; i++) {
+            after.setCell(layout.clusteringOrdinal(i), new CellData(clusteringNames[i], null, null, CellData.ColumnType.CLUSTERING));
+        }
+        after.setClusteringRange(new ClusteringRange(
+                bound(slice.start()), slice.start().isInclusive(),
+                bound(slice.end()), slice.end().isInclusive()));
+    }
+
+    static List<ByteBuffer> bound(ClusteringBound<?> bound) {
+        List<ByteBuffer> values = new ArrayList<>(bound.size());
+        for (int i = 0; i < bound.size(); i++) {
+            values.add(bound.bufferAt(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.ParameterizedClass;
+import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
+import org.apache.cassandra.db.commitlog.CommitLogReadHandler;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.locator.SeedProvider;
+import org.apache.cassandra.locator.SimpleSnitch;
+import org.apache.cassandra.schema.KeyspaceMetadata;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.Schema;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.schema.TableParams;
+import org.apache.cassandra.schema.Tables;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tail the segments written by the Cassandra commitlog, the tests share the active segment.
+ */
+public class CommitLogTailerTest {
+
+    static TableMetadata table;
+    static final AtomicInteger ids = new AtomicInteger();
+
+    /**
+     * Record the partition keys and the entry end positions of the decoded mutations.
+     */
+    static class RecordingHandler implements CommitLogReadHandler {
+        final List<Integer> ids = new ArrayList<>();
+        final List<Integer> positions = new ArrayList<>();
+
+        @Override
+        public boolean shouldSkipSegmentOnError(CommitLogReadException exception) {
+            return false;
+        }
+
+        @Override
+        public void handleUnrecoverableError(CommitLogReadException exception) throws IOException {
+            throw exception;
+        }
+
+        @Override
+        public void handleMutation(org.apache.cassandra.db.Mutation mutation, int size, int entryLocation, CommitLogDescriptor descriptor) {
+            for (PartitionUpdate pu : mutation.getPartitionUpdates()) {
+                ids.add(Int32Type.instance.compose(pu.partitionKey().getKey()));
+            }
+            positions.add(entryLocation);
+        }
+
+        List<Integer> lastIds(int count) {
+            return ids.subList(Math.max(0, ids.size() - count), ids.size());
+        }
+    }
+
+    /**
+     * Seed provider not reloading the cassandra.yaml file.
+     */
+    public static class LocalSeedProvider implements SeedProvider {
+        public LocalSeedProvider(Map<String, String> args) {
+        }
+
+        @Override
+        public List<InetAddressAndPort> getSeeds() {
+            return Collections.singletonList(InetAddressAndPort.getLoopbackAddress());
+        }
+    }
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Path dir = Files.createTempDirectory("cassandra");
+        DatabaseDescriptor.daemonInitialization(() -> {
+            Config config = new Config();
+            config.cluster_name = "test";
+            config.partitioner = Murmur3Partitioner.class.getName();
+            config.endpoint_snitch = SimpleSnitch.class.getName();
+            config.seed_provider = new ParameterizedClass(LocalSeedProvider.class.getName(), Collections.emptyMap());
+            config.commitlog_sync = Config.CommitLogSync.periodic;
+            // the segments are synced by the tests
+            config.commitlog_sync_period_in_ms = 3600000;
+            config.cdc_enabled = true;
+            config.commitlog_directory = dir.resolve("commitlog").toString();
+            config.cdc_raw_directory = dir.resolve("cdc_raw").toString();
+            config.hints_directory = dir.resolve("hints").toString();
+            config.saved_caches_directory = dir.resolve("saved_caches").toString();
+            config.data_file_directories = new String[] { dir.resolve("data").toString() };
+            return config;
+        });
+        table = TableMetadata.builder("ks", "table")
+                .addPartitionKeyColumn("id", Int32Type.instance)
+                .addClusteringColumn("ck", Int32Type.instance)
+                .addRegularColumn("v", UTF8Type.instance)
+                .params(TableParams.builder().cdc(true).build())
+                .build();
+        Schema.instance.load(KeyspaceMetadata.create("ks", KeyspaceParams.simple(1), Tables.of(table)));
+        CommitLog.instance.start();
+    }
+
+    /**
+     * Write mutations to the commitlog.
+     * @return the partition keys of the written mutations.
+     */
+    static List<Integer> write(int count) {
+        List<Integer> written = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = ids.incrementAndGet();
+            PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(table, id);
+            builder.row(i).add("v", "value" + id);
+            CommitLog.instance.add(builder.buildAsMutation());
+            written.add(id);
+        }
+        return written;
+    }
+
+    /**
+     * Sync the commitlog.
+     * @return the synced position of the active segment, read from its _cdc.idx file.
+     */
+    static int sync() throws IOException {
+        CommitLog.instance.sync(true);
+        File index = new File(DatabaseDescriptor.getCDCLogLocation(), segment().getName().replace(".log", "_cdc.idx"));
+        return Integer.parseInt(Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).get(0));
+    }
+
+    /**
+     * @return the active segment in the cdc_raw directory.
+     */
+    static File segment() {
+        long segmentId = CommitLog.instance.getCurrentPosition().segmentId;
+        File[] files = new File(DatabaseDescriptor.getCDCLogLocation()).listFiles((d, name) -> name.endsWith("-" + segmentId + ".log"));
+        assertEquals(1, files.length, "segment files=" + Arrays.toString(files));
+        return files[0];
+    }
+
+    @Test
+    public void testPartlySyncedTail() throws Exception {
+        List<Integer> synced = write(3);
+        int syncedPosition = sync();
+        List<Integer> notSynced = write(2);
+        // let the commitlog mark the unsynced section
+        Thread.sleep(300);
+
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            RecordingHandler handler = new RecordingHandler();
+            int checkpoint = tailer.read(handler, syncedPosition, 0);
+            assertEquals(synced, handler.lastIds(3));
+            assertEquals(syncedPosition, checkpoint);
+
+            // the next read decodes the newly synced section only
+            handler.ids.clear();
+            int nextSyncedPosition = sync();
+            assertEquals(nextSyncedPosition, tailer.read(handler, nextSyncedPosition, 0));
+            assertEquals(notSynced, handler.ids);
+        }
+    }
+
+    @Test
+    public void testResumeAtCheckpoint() throws Exception {
+        write(3);
+        int syncedPosition = sync();
+        int checkpoint;
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            checkpoint = tailer.read(new RecordingHandler(), syncedPosition, 0);
+        }
+        List<Integer> afterCheckpoint = write(2);
+        int nextSyncedPosition = sync();
+
+        // the sections before the checkpoint are not read again
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment(), checkpoint));
+            assertEquals(checkpoint, tailer.position());
+            RecordingHandler handler = new RecordingHandler();
+            tailer.read(handler, nextSyncedPosition, 0);
+            assertEquals(afterCheckpoint, handler.ids);
+        }
+
+        // an invalid checkpoint reads the segment from its start
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment(), checkpoint + 1));
+            RecordingHandler handler = new RecordingHandler();
+            tailer.read(handler, nextSyncedPosition, 0);
+            assertEquals(afterCheckpoint, handler.lastIds(2));
+            assertTrue(handler.ids.size() > 2);
+        }
+    }
+
+    @Test
+    public void testSkipEntryEndingAtMinPosition() throws Exception {
+        List<Integer> written = write(3);
+        int syncedPosition = sync();
+        RecordingHandler handler = new RecordingHandler();
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            tailer.read(handler, syncedPosition, 0);
+        }
+        assertEquals(written, handler.lastIds(3));
+        // the offset of a processed mutation is the end position of its entry
+        int firstEntryEnd = handler.positions.get(handler.positions.size() - 3);
+
+        RecordingHandler resumed = new RecordingHandler();
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            tailer.read(resumed, syncedPosition, firstEntryEnd);
+        }
+        assertEquals(written.subList(1, 3), resumed.ids);
+
+        RecordingHandler beforeEnd = new RecordingHandler();
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            tailer.read(beforeEnd, syncedPosition, firstEntryEnd - 1);
+        }
+        assertEquals(written, beforeEnd.ids);
+    }
+
+    @Test
+    public void testCorruptedEntry() throws Exception {
+        write(3);
+        int syncedPosition = sync();
+        RecordingHandler handler = new RecordingHandler();
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(segment()));
+            tailer.read(handler, syncedPosition, 0);
+        }
+
+        // flip the last byte of the serialized mutation before the entry CRC
+        File corrupted = new File(Files.createTempDirectory("commitlog").toFile(), segment().getName());
+        Files.copy(segment().toPath(), corrupted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        int lastEntryEnd = handler.positions.get(handler.positions.size() - 1);
+        try (RandomAccessFile file = new RandomAccessFile(corrupted, "rw")) {
+            file.seek(lastEntryEnd - 5);
+            int b = file.read();
+            file.seek(lastEntryEnd - 5);
+            file.write(b ^ 0xFF);
+        }
+
+        try (CommitLogTailer tailer = new CommitLogTailer()) {
+            assertTrue(tailer.open(corrupted));
+            IOException e = assertThrows(IOException.class, () -> tailer.read(new RecordingHandler(), syncedPosition, 0));
+            assertTrue(e.getMessage().startsWith("Mutation checksum failure"), e.getMessage());
+        }
+    }
+
+    /**
+     * Read the segment with a producer commitlog read handler.
+     * @return the sent mutations, described by their primary key and commitlog position.
+     */
+    static List<String> send(ProducerConfig config, CommitLogReader reader) throws Exception {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        MutationSender<TableMetadata> sender = mutation -> {
+            sent.add(mutation.primaryKeyCells().stream()
+                    .map(c -> String.valueOf(c.value))
+                    .collect(Collectors.joining(",")) + "@" + mutation.getCommitLogPosition().position);
+            return CompletableFuture.completedFuture(null);
+        };
+        OffsetFileWriter offsetWriter = new OffsetFileWriter(Files.createTempDirectory("offset").toString());
+        CommitLogReadHandlerImpl handler = new CommitLogReadHandlerImpl(config, offsetWriter, sender);
+        try {
+            reader.read(handler);
+            handler.drain();
+        } finally {
+            handler.close();
+            offsetWriter.close();
+        }
+        return sent;
+    }
+
+    interface CommitLogReader {
+        void read(CommitLogReadHandlerImpl handler) throws Exception;
+    }
+
+    @Test
+    public void testReadSections() throws Exception {
+        StorageService.instance.getTokenMetadata().updateHostId(UUID.randomUUID(), FBUtilities.getBroadcastAddressAndPort());
+        ProducerConfig config = new ProducerConfig();
+        // keep the send order
+        config.sendLanes = 1;
+        // hand off the decoded mutations one by one
+        config.segmentDecoderMaxBufferedBytes = 1;
+
+        List<Integer> written = new ArrayList<>();
+        for (int section = 0; section < 5; section++) {
+            written.addAll(write(20));
+            sync();
+        }
+        File segment = segment();
+
+        List<String> read = send(config, handler -> {
+            try (CommitLogTailer tailer = new CommitLogTailer()) {
+                assertTrue(tailer.open(segment));
+                tailer.read(handler, Integer.MAX_VALUE, 0);
+            }
+        });
+        ForkJoinPool executor = new ForkJoinPool(3);
+        try {
+            List<String> readSections = send(config, handler -> {
+                try (CommitLogTailer tailer = new CommitLogTailer()) {
+                    assertTrue(tailer.open(segment));
+                    tailer.readSections(handler, 0, executor);
+                }
+            });
+            assertEquals(read, readSections);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> lastKeys = new ArrayList<>();
+        for (String mutation : read.subList(read.size() - written.size(), read.size())) {
+            lastKeys.add(mutation.substring(0, mutation.indexOf(',')));
+        }
+        assertEquals(written.stream().map(String::valueOf).collect(Collectors.toList()), lastKeys);
+    }
+}
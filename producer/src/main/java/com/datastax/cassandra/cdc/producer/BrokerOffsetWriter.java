@@ -0,0 +1,209 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persist the commitlog offset of the node in the compacted {@link OffsetTopic}, in addition to a local offset store,
+ * so the offset survives a node replacement or a rebuilt disk.
+ *
+ * The offsets are keyed by node address because the host id of a replacing node changes and is not known before
+ * the node starts. The acknowledged offsets are published by a background thread according to the {@link OffsetFlushPolicy},
+ * with at most one publication in flight, and the offsets marked meanwhile are published together.
+ * On startup, the most recent of the published and the local offsets wins, and the local offset is used
+ * when the broker is not available or the offset is not read within {@link ProducerConfig#offsetTopicReadTimeoutMs}.
+ */
+@Slf4j
+public class BrokerOffsetWriter implements OffsetWriter, AutoCloseable {
+
+    private final OffsetWriter localOffsetWriter;
+    private final OffsetTopic offsetTopic;
+    private final String nodeKey;
+    private final long readTimeoutMs;
+
+    private final AtomicReference<CommitLogPosition> offsetRef;
+    private final AtomicReference<CommitLogPosition> checkpointRef;
+
+    private final OffsetFlushPolicy offsetFlushPolicy;
+    private volatile long timeOfLastPublish = System.currentTimeMillis();
+    private final AtomicLong notPublishedEvents = new AtomicLong(0L);
+    private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService publishExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-offset-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BrokerOffsetWriter(ProducerConfig config, OffsetWriter localOffsetWriter, OffsetTopic offsetTopic, String nodeKey) {
+        this.localOffsetWriter = localOffsetWriter;
+        this.offsetTopic = offsetTopic;
+        this.nodeKey = nodeKey;
+        this.readTimeoutMs = config.offsetTopicReadTimeoutMs;
+        this.offsetFlushPolicy = config.offsetFlushIntervalMs > 0
+                ? OffsetFlushPolicy.periodic(Duration.ofMillis(config.offsetFlushIntervalMs), config.offsetFlushMaxMutations)
+                : OffsetFlushPolicy.always();
+        this.offsetRef = new AtomicReference<>(localOffsetWriter.offset());
+        this.checkpointRef = new AtomicReference<>(localOffsetWriter.checkpoint());
+        loadOffset();
+        if (config.offsetFlushIntervalMs > 0) {
+            publishExecutor.scheduleWithFixedDelay(this::publishIfNotPublished,
+                    config.offsetFlushIntervalMs, config.offsetFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public CommitLogPosition offset(Optional<UUID> nodeId) {
+        return this.offsetRef.get();
+    }
+
+    @Override
+    public void markOffset(Mutation<?> mutation) {
+        localOffsetWriter.markOffset(mutation);
+        this.offsetRef.set(mutation.getCommitLogPosition());
+        long events = notPublishedEvents.incrementAndGet();
+        long timeSinceLastPublish = System.currentTimeMillis() - timeOfLastPublish;
+        if (offsetFlushPolicy.shouldFlush(Duration.ofMillis(timeSinceLastPublish), events)) {
+            schedulePublish();
+        }
+    }
+
+    @Override
+    public void markCheckpoint(CommitLogPosition sectionPosition) {
+        localOffsetWriter.markCheckpoint(sectionPosition);
+        this.checkpointRef.set(sectionPosition);
+    }
+
+    @Override
+    public CommitLogPosition checkpoint() {
+        return this.checkpointRef.get();
+    }
+
+    /**
+     * Persist the local offset, and publish the offset asynchronously.
+     */
+    @Override
+    public void flush(Optional<UUID> nodeId) throws IOException {
+        localOffsetWriter.flush(nodeId);
+        schedulePublish();
+    }
+
+    @Override
+    public void close() {
+        publishExecutor.shutdownNow();
+        try {
+            publishExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishOffset();
+        offsetTopic.close();
+        if (localOffsetWriter instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) localOffsetWriter).close();
+            } catch (Exception e) {
+                log.warn("Failed to close the local offset writer", e);
+            }
+        }
+    }
+
+    private void schedulePublish() {
+        if (publishScheduled.compareAndSet(false, true)) {
+            publishExecutor.execute(() -> {
+                publishScheduled.set(false);
+                publishOffset();
+            });
+        }
+    }
+
+    private void publishIfNotPublished() {
+        if (notPublishedEvents.get() > 0) {
+            publishOffset();
+        }
+    }
+
+    /**
+     * Publish the current offset and the checkpoint, on the second line, and wait for the broker acknowledgement.
+     */
+    private synchronized void publishOffset() {
+        final CommitLogPosition position = offsetRef.get();
+        final CommitLogPosition checkpoint = checkpointRef.get();
+        long events = notPublishedEvents.get();
+        StringBuilder sb = new StringBuilder(OffsetFileWriter.serializePosition(position));
+        if (checkpoint != null) {
+            sb.append('\n').append(OffsetFileWriter.serializePosition(checkpoint));
+        }
+        try {
+            offsetTopic.publish(nodeKey, sb.toString()).toCompletableFuture().get();
+            notPublishedEvents.addAndGet(-events);
+            timeOfLastPublish = System.currentTimeMillis();
+            log.debug("Published offset={} checkpoint={} key={}", position, checkpoint, nodeKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to publish offset=" + position + " key=" + nodeKey, e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Load the published offset when more recent than the local offset.
+     */
+    private void loadOffset() {
+        // the read may not return if the broker is lost meanwhile, do not block the node startup
+        ExecutorService readExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cdc-offset-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String value = readExecutor.submit(() -> offsetTopic.read(nodeKey)).get(readTimeoutMs, TimeUnit.MILLISECONDS);
+            if (value == null) {
+                log.info("No published offset for key={}, local offset={}", nodeKey, offsetRef.get());
+                return;
+            }
+            String[] lines = value.split("\n");
+            CommitLogPosition publishedOffset = OffsetFileWriter.deserializePosition(lines[0]);
+            if (publishedOffset.compareTo(offsetRef.get()) > 0) {
+                offsetRef.set(publishedOffset);
+                checkpointRef.set(lines.length > 1 && !lines[1].isEmpty() ? OffsetFileWriter.deserializePosition(lines[1]) : null);
+                log.info("Loaded published offset={} checkpoint={} key={}", offsetRef.get(), checkpointRef.get(), nodeKey);
+            } else {
+                log.info("Published offset={} key={} not after the local offset={}", publishedOffset, nodeKey, offsetRef.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read the published offset of key=" + nodeKey + ", using the local offset=" + offsetRef.get(),
+                    e instanceof ExecutionException ? e.getCause() : e);
+        } finally {
+            readExecutor.shutdownNow();
+        }
+    }
+}
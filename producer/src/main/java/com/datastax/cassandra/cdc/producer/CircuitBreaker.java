@@ -0,0 +1,88 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open after a number of consecutive send failures, and close on the next successful send.
+ *
+ * While open, new mutations are not dispatched, which pauses the commitlog reading. The retries
+ * of the in-flight mutations act as probes to detect when the broker is available again.
+ */
+@Slf4j
+public class CircuitBreaker {
+    private final int failureThreshold;
+    // volatile for the lock-free fast path of the send hot path
+    private volatile int consecutiveFailures = 0;
+    private volatile boolean open = false;
+
+    public CircuitBreaker(int failureThreshold) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    /**
+     * @return true if the circuit breaker has been opened by this failure.
+     */
+    public synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        if (!open && consecutiveFailures >= failureThreshold) {
+            open = true;
+            log.warn("Circuit breaker opened after {} consecutive send failures", consecutiveFailures);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the circuit breaker has been closed by this success.
+     */
+    public boolean recordSuccess() {
+        if (consecutiveFailures == 0)
+            return false;
+        synchronized (this) {
+            return close();
+        }
+    }
+
+    private boolean close() {
+        consecutiveFailures = 0;
+        if (open) {
+            open = false;
+            log.info("Circuit breaker closed");
+            notifyAll();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Block while the circuit breaker is open.
+     */
+    public void awaitClosed() throws InterruptedException {
+        if (!open)
+            return;
+        synchronized (this) {
+            while (open) {
+                wait();
+            }
+        }
+    }
+}
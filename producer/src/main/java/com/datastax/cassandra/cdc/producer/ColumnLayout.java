@@ -0,0 +1,83 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column ordinals of a table, precomputed once per table metadata: the partition key columns,
+ * then the clustering columns, then the regular and static columns.
+ *
+ * The {@link RowData} of the table stores its cells in an array indexed by these ordinals.
+ */
+public class ColumnLayout {
+    final String[] names;
+    final CellData.ColumnType[] columnTypes;
+    final int partitionKeyCount;
+    final int clusteringCount;
+    private final Map<String, Integer> ordinals;
+
+    public ColumnLayout(String[] partitionKeyNames, String[] clusteringNames, String[] regularNames) {
+        this.partitionKeyCount = partitionKeyNames.length;
+        this.clusteringCount = clusteringNames.length;
+        int size = partitionKeyNames.length + clusteringNames.length + regularNames.length;
+        this.names = new String[size];
+        this.columnTypes = new CellData.ColumnType[size];
+        this.ordinals = new HashMap<>(size * 2);
+        int i = 0;
+        for (String name : partitionKeyNames)
+            add(i++, name, CellData.ColumnType.PARTITION);
+        for (String name : clusteringNames)
+            add(i++, name, CellData.ColumnType.CLUSTERING);
+        for (String name : regularNames)
+            add(i++, name, CellData.ColumnType.REGULAR);
+    }
+
+    private void add(int ordinal, String name, CellData.ColumnType columnType) {
+        names[ordinal] = name;
+        columnTypes[ordinal] = columnType;
+        ordinals.put(name, ordinal);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    public CellData.ColumnType columnType(int ordinal) {
+        return columnTypes[ordinal];
+    }
+
+    /**
+     * @return the ordinal of the column, or -1 for an unknown column.
+     */
+    public int ordinal(String name) {
+        Integer ordinal = ordinals.get(name);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public int partitionKeyOrdinal(int i) {
+        return i;
+    }
+
+    public int clusteringOrdinal(int i) {
+        return partitionKeyCount + i;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Send each decoded mutation to several {@link MutationSender} backends concurrently.
+ *
+ * A send completes when {@link ProducerConfig#fanOutQuorum} backends have acknowledged the mutation (all by default),
+ * and fails as soon as the quorum cannot be reached anymore. A failed send is retried by the {@link MutationPipeline}
+ * on all the backends, so backends that already acknowledged the mutation may receive it twice.
+ * With a quorum lower than the number of backends, a late failure of a backend after the quorum is reached is not retried.
+ */
+@Slf4j
+public class FanOutMutationSender<T> implements MutationSender<T>, AutoCloseable {
+
+    /**
+     * A backend sender with its lag tracking.
+     */
+    static class Backend<T> {
+        final String name;
+        final MutationSender<T> sender;
+        final AtomicInteger pending = new AtomicInteger(0);
+        final AtomicLong errors = new AtomicLong(0L);
+        // last time the backend acknowledged a mutation or became busy.
+        final AtomicLong progressNanos = new AtomicLong(System.nanoTime());
+
+        Backend(String name, MutationSender<T> sender) {
+            this.name = name;
+            this.sender = sender;
+        }
+    }
+
+    private final Map<String, Backend<T>> backends = new LinkedHashMap<>();
+    private final int quorum;
+
+    public FanOutMutationSender(ProducerConfig config, Map<String, MutationSender<T>> senders) {
+        if (senders.isEmpty())
+            throw new IllegalArgumentException("No fan-out senders");
+        for (Map.Entry<String, MutationSender<T>> entry : senders.entrySet()) {
+            backends.put(entry.getKey(), new Backend<>(entry.getKey(), entry.getValue()));
+        }
+        this.quorum = config.fanOutQuorum <= 0 || config.fanOutQuorum > senders.size() ? senders.size() : config.fanOutQuorum;
+        log.info("Fan-out senders={} quorum={}", backends.keySet(), quorum);
+    }
+
+    /**
+     * Wrap the agent sender with the {@link ProducerConfig#fanOutSenders} instantiated by reflection,
+     * or return the agent sender when no additional sender is configured.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> MutationSender<T> create(ProducerConfig config, MutationSender<T> sender) {
+        if (config.fanOutSenders == null || config.fanOutSenders.trim().isEmpty())
+            return sender;
+
+        Map<String, MutationSender<T>> senders = new LinkedHashMap<>();
+        senders.put(sender.getClass().getSimpleName(), sender);
+        for (String className : config.fanOutSenders.split(",")) {
+            className = className.trim();
+            if (className.isEmpty())
+                continue;
+            try {
+                Constructor<?> constructor = Class.forName(className).getDeclaredConstructor(ProducerConfig.class);
+                constructor.setAccessible(true);
+                MutationSender<T> fanOutSender = (MutationSender<T>) constructor.newInstance(config);
+                if (senders.putIfAbsent(fanOutSender.getClass().getSimpleName(), fanOutSender) != null)
+                    throw new IllegalArgumentException("Duplicate fan-out sender " + className);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Cannot instantiate the fan-out sender " + className, e);
+            }
+        }
+        return new FanOutMutationSender<>(config, senders);
+    }
+
+    @Override
+    public void initialize(ProducerConfig config) throws Exception {
+        for (Backend<T> backend : backends.values()) {
+            backend.sender.initialize(config);
+        }
+    }
+
+    @Override
+    public CompletionStage<?> sendMutationAsync(Mutation<T> mutation) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final AtomicInteger acks = new AtomicInteger(0);
+        final AtomicInteger failures = new AtomicInteger(0);
+        final int maxFailures = backends.size() - quorum;
+        for (Backend<T> backend : backends.values()) {
+            if (backend.pending.getAndIncrement() == 0)
+                backend.progressNanos.set(System.nanoTime());
+            CompletionStage<?> stage;
+            try {
+                stage = backend.sender.sendMutationAsync(mutation);
+            } catch (Throwable t) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(t);
+                stage = failed;
+            }
+            stage.whenComplete((r, t) -> {
+                backend.pending.decrementAndGet();
+                if (t == null) {
+                    backend.progressNanos.set(System.nanoTime());
+                    if (acks.incrementAndGet() == quorum)
+                        result.complete(null);
+                } else {
+                    log.warn("Fan-out sender={} failed to send mutation={}: {}", backend.name, mutation, t.getMessage());
+                    backend.errors.incrementAndGet();
+                    if (failures.incrementAndGet() == maxFailures + 1)
+                        result.completeExceptionally(t);
+                }
+            });
+        }
+        return result;
+    }
+
+    public List<String> backends() {
+        return Collections.unmodifiableList(new ArrayList<>(backends.keySet()));
+    }
+
+    public int quorum() {
+        return quorum;
+    }
+
+    /**
+     * @return the number of mutations not yet acknowledged by the backend.
+     */
+    public int pendingMutations(String backend) {
+        return backends.get(backend).pending.get();
+    }
+
+    /**
+     * @return the number of send failures of the backend.
+     */
+    public long errors(String backend) {
+        return backends.get(backend).errors.get();
+    }
+
+    /**
+     * @return the time in milliseconds since the backend last acknowledged a mutation while some are pending, 0 when idle.
+     */
+    public long lagMs(String backend) {
+        Backend<T> b = backends.get(backend);
+        return b.pending.get() == 0 ? 0L : (System.nanoTime() - b.progressNanos.get()) / 1_000_000L;
+    }
+
+    @Override
+    public void close() {
+        for (Backend<T> backend : backends.values()) {
+            if (backend.sender instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) backend.sender).close();
+                } catch (Exception e) {
+                    log.warn("Failed to close the fan-out sender=" + backend.name, e);
+                }
+            }
+        }
+    }
+}
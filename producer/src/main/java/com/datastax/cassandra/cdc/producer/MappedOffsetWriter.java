@@ -0,0 +1,204 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persist the commitlog offset in a small memory-mapped file with two alternating checksummed slots.
+ *
+ * Each offset update is a plain store into the older slot, with a sequence number and a CRC, so a torn write
+ * never corrupts the last written slot, and the newest valid slot wins on load. The stores survive an agent crash,
+ * the mapped file is forced to disk on each {@link #flush(Optional)} and every {@link ProducerConfig#offsetFlushIntervalMs}.
+ * A commitlog_offset.dat file written by the {@link OffsetFileWriter} is loaded when the mapped file does not exist.
+ */
+@Slf4j
+public class MappedOffsetWriter implements OffsetWriter, AutoCloseable {
+    public static final String COMMITLOG_OFFSET_MAP_FILE = "commitlog_offset.map";
+
+    static final int SLOT_SIZE = 64;
+    // slot: segment id, position, checkpoint segment id, checkpoint position, sequence number, then the CRC
+    static final int SLOT_DATA_SIZE = 8 + 4 + 8 + 4 + 8;
+    private static final long NO_CHECKPOINT = -1L;
+
+    private final File offsetFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final CRC32 checksum = new CRC32();
+
+    // guarded by this
+    private long sequence = 0L;
+    private volatile CommitLogPosition offset = new CommitLogPosition(0, 0);
+    private volatile CommitLogPosition checkpoint = null;
+    private volatile boolean dirty = false;
+
+    private final ScheduledExecutorService forceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-offset-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MappedOffsetWriter(ProducerConfig config, String cdcLogDir) throws IOException {
+        this.offsetFile = new File(cdcLogDir, COMMITLOG_OFFSET_MAP_FILE);
+        boolean exists = offsetFile.exists();
+        if (!exists) {
+            Files.createDirectories(offsetFile.toPath().getParent());
+        }
+        this.channel = FileChannel.open(offsetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+        if (!exists || !load()) {
+            migrate(new File(cdcLogDir, OffsetFileWriter.COMMITLOG_OFFSET_FILE));
+        }
+        if (config.offsetFlushIntervalMs > 0) {
+            forceExecutor.scheduleWithFixedDelay(this::forceIfDirty,
+                    config.offsetFlushIntervalMs, config.offsetFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public CommitLogPosition offset(Optional<UUID> nodeId) {
+        return offset;
+    }
+
+    @Override
+    public synchronized void markOffset(Mutation<?> mutation) {
+        this.offset = mutation.getCommitLogPosition();
+        writeSlot();
+    }
+
+    @Override
+    public synchronized void markCheckpoint(CommitLogPosition sectionPosition) {
+        this.checkpoint = sectionPosition;
+        writeSlot();
+    }
+
+    @Override
+    public CommitLogPosition checkpoint() {
+        return checkpoint;
+    }
+
+    @Override
+    public void flush(Optional<UUID> nodeId) {
+        force();
+    }
+
+    @Override
+    public void close() {
+        forceExecutor.shutdownNow();
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close file " + offsetFile.getName(), e);
+        }
+    }
+
+    private void forceIfDirty() {
+        if (dirty) {
+            force();
+        }
+    }
+
+    private void force() {
+        dirty = false;
+        mapped.force();
+        log.debug("Flush offset={} checkpoint={}", offset, checkpoint);
+    }
+
+    /**
+     * Write the offset into the older slot.
+     */
+    private void writeSlot() {
+        sequence++;
+        int base = (int) (sequence & 1L) * SLOT_SIZE;
+        CommitLogPosition offset = this.offset;
+        CommitLogPosition checkpoint = this.checkpoint;
+        mapped.putLong(base, offset.segmentId);
+        mapped.putInt(base + 8, offset.position);
+        mapped.putLong(base + 12, checkpoint == null ? NO_CHECKPOINT : checkpoint.segmentId);
+        mapped.putInt(base + 20, checkpoint == null ? 0 : checkpoint.position);
+        mapped.putLong(base + 24, sequence);
+        mapped.putInt(base + SLOT_DATA_SIZE, slotChecksum(base));
+        dirty = true;
+    }
+
+    private int slotChecksum(int base) {
+        ByteBuffer slot = mapped.duplicate();
+        slot.position(base).limit(base + SLOT_DATA_SIZE);
+        checksum.reset();
+        checksum.update(slot);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Load the newest valid slot.
+     * @return false if no slot is valid.
+     */
+    private synchronized boolean load() {
+        int newest = -1;
+        for (int base = 0; base < 2 * SLOT_SIZE; base += SLOT_SIZE) {
+            long slotSequence = mapped.getLong(base + 24);
+            if (slotSequence > 0 && mapped.getInt(base + SLOT_DATA_SIZE) == slotChecksum(base)
+                    && (newest < 0 || slotSequence > mapped.getLong(newest + 24))) {
+                newest = base;
+            }
+        }
+        if (newest < 0) {
+            log.warn("No valid offset slot in file {}", offsetFile.getName());
+            return false;
+        }
+        this.sequence = mapped.getLong(newest + 24);
+        this.offset = new CommitLogPosition(mapped.getLong(newest), mapped.getInt(newest + 8));
+        long checkpointSegmentId = mapped.getLong(newest + 12);
+        this.checkpoint = checkpointSegmentId == NO_CHECKPOINT ? null : new CommitLogPosition(checkpointSegmentId, mapped.getInt(newest + 20));
+        log.debug("file offset={} checkpoint={} sequence={}", offset, checkpoint, sequence);
+        return true;
+    }
+
+    /**
+     * Initialize the slots from the offset file of the {@link OffsetFileWriter}, if any.
+     */
+    private synchronized void migrate(File textOffsetFile) throws IOException {
+        if (textOffsetFile.exists()) {
+            try (BufferedReader br = new BufferedReader(new FileReader(textOffsetFile))) {
+                this.offset = OffsetFileWriter.deserializePosition(br.readLine());
+                String line = br.readLine();
+                if (line != null && !line.isEmpty()) {
+                    this.checkpoint = OffsetFileWriter.deserializePosition(line);
+                }
+            }
+            log.info("Loaded offset={} checkpoint={} from file {}", offset, checkpoint, textOffsetFile.getName());
+        }
+        writeSlot();
+        force();
+    }
+}
@@ -15,13 +15,19 @@
  */
 package com.datastax.cassandra.cdc.producer;
 
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.cassandra.cdc.DigestVersion;
 import com.datastax.cassandra.cdc.MutationValue;
+import com.datastax.cassandra.cdc.RowImage;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -37,17 +43,61 @@ public class Mutation<T> {
     private SourceInfo source;
     private RowData rowData;
     private boolean shouldMarkOffset;
-    private long ts;
+    private long tsMicros;
     private String md5Digest;
     private T metadata;
 
+    /**
+     * @return the mutation timestamp in milliseconds.
+     */
+    public long getTs() {
+        return tsMicros / 1000;
+    }
+
     public List<CellData> primaryKeyCells() {
         return rowData.primaryKeyCells();
     }
 
     public MutationValue mutationValue() {
-        // TODO: Unfortunately, computing the mutation CRC require to re-serialize it because we cannot get the byte[] from the commitlog reader.
-        // So, we use the timestamp here.
-        return new MutationValue(md5Digest, source.nodeId, rowData.nonPrimaryKeyNames());
+        // the commitlog reader does not provide the entry bytes, so the digest is computed once per entry from the re-serialized mutation.
+        return new MutationValue(md5Digest, source.nodeId, rowData.nonPrimaryKeyNames(), null, null, null, rowImage(), clusteringRange());
+    }
+
+    /**
+     * Build the compact mutation value, with a binary digest and a bitmap of the mutated columns.
+     * @param columnIndex the column index of the table, or null for the legacy mutation value.
+     */
+    public MutationValue mutationValue(ColumnIndex columnIndex) {
+        if (columnIndex == null)
+            return mutationValue();
+        String[] columns = rowData.nonPrimaryKeyNames();
+        byte[] bitmap = columnIndex.bitmap(columns);
+        return bitmap == null
+                // unknown columns, the table schema has changed
+                ? new MutationValue(null, source.nodeId, columns, DigestVersion.toBytes(md5Digest), null, null, rowImage(), clusteringRange())
+                : new MutationValue(null, source.nodeId, null, DigestVersion.toBytes(md5Digest), columnIndex.version(), bitmap, rowImage(), clusteringRange());
+    }
+
+    /**
+     * @return the {@link RowImage} of the regular cells, or null when the row data has no regular cell.
+     */
+    byte[] rowImage() {
+        Map<String, ByteBuffer> values = null;
+        for (CellData cellData : rowData.cells()) {
+            if (cellData.isPrimary())
+                continue;
+            if (values == null)
+                values = new LinkedHashMap<>();
+            // regular cell values are serialized with the CQL native protocol, null for deleted cells
+            values.put(cellData.name, (ByteBuffer) cellData.value);
+        }
+        return values == null ? null : RowImage.encode(values);
+    }
+
+    /**
+     * @return the encoded clustering range of a range deletion, or null.
+     */
+    byte[] clusteringRange() {
+        return rowData.getClusteringRange() == null ? null : rowData.getClusteringRange().encode();
     }
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesce the mutations of the same primary key within a time window, keeping only the last one.
+ *
+ * The source connectors read the current state of the row, so the intermediate mutations of a hot key are useless.
+ * A window opens with its first mutation and is flushed after {@link ProducerConfig#coalesceWindowMs} or when it holds
+ * {@link ProducerConfig#coalesceMaxMutations} mutations, so a mutation is never held longer than the window.
+ * A replaced mutation moves to the end of the window, the mutations are dispatched in commit log order
+ * and the offset only moves forward. Range deletions are never coalesced.
+ */
+@Slf4j
+public class MutationCoalescer<T> implements AutoCloseable {
+
+    /**
+     * Dispatch a mutation to the send pipeline or the spill.
+     */
+    public interface Dispatcher<T> {
+        void dispatch(Mutation<T> mutation, long size, int partitionKeyHash) throws InterruptedException;
+    }
+
+    static class Entry<T> {
+        final Mutation<T> mutation;
+        final long size;
+        final int partitionKeyHash;
+
+        Entry(Mutation<T> mutation, long size, int partitionKeyHash) {
+            this.mutation = mutation;
+            this.size = size;
+            this.partitionKeyHash = partitionKeyHash;
+        }
+    }
+
+    private final Dispatcher<T> dispatcher;
+    private final long windowMs;
+    private final int maxMutations;
+
+    // pending mutations by primary key in dispatch order, guarded by this.
+    private final LinkedHashMap<Object, Entry<T>> window = new LinkedHashMap<>();
+    // bumped on each flush to ignore the timer of a flushed window.
+    private long epoch = 0L;
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MutationCoalescer(ProducerConfig config, Dispatcher<T> dispatcher) {
+        this.dispatcher = dispatcher;
+        this.windowMs = Math.max(1L, config.coalesceWindowMs);
+        this.maxMutations = Math.max(1, config.coalesceMaxMutations);
+    }
+
+    /**
+     * Called when a pending mutation is replaced by a later mutation of the same primary key.
+     */
+    protected void onCoalesced(Mutation<T> mutation) {
+    }
+
+    static Object key(Mutation<?> mutation) {
+        if (mutation.getRowData().getClusteringRange() != null) {
+            // unique key, range deletions do not replace each other
+            return new Object();
+        }
+        Object[] primaryKey = mutation.getRowData().primaryKeyValues();
+        Object[] key = new Object[primaryKey.length + 2];
+        key[0] = mutation.getSource().keyspace;
+        key[1] = mutation.getSource().table;
+        System.arraycopy(primaryKey, 0, key, 2, primaryKey.length);
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Add a mutation to the window, replacing the pending mutation of the same primary key.
+     * Blocks while the full window is dispatched.
+     */
+    public synchronized void add(Mutation<T> mutation, long size, int partitionKeyHash) throws InterruptedException {
+        Object key = key(mutation);
+        Entry<T> previous = window.remove(key);
+        if (previous != null) {
+            onCoalesced(previous.mutation);
+        }
+        window.put(key, new Entry<>(mutation, size, partitionKeyHash));
+        if (window.size() >= maxMutations) {
+            flush();
+        } else if (window.size() == 1 && previous == null) {
+            final long windowEpoch = epoch;
+            flushExecutor.schedule(() -> flush(windowEpoch), windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(long windowEpoch) {
+        try {
+            synchronized (this) {
+                if (epoch == windowEpoch)
+                    flush();
+            }
+        } catch (InterruptedException e) {
+            log.debug("Coalescer flush interrupted");
+        } catch (Exception e) {
+            log.error("Failed to flush the coalesced mutations", e);
+        }
+    }
+
+    /**
+     * Dispatch all the pending mutations in commit log order.
+     * A mutation leaves the window once dispatched, so the mutations not dispatched by an interrupted or failed flush
+     * stay pending, in order, and are dispatched by the next flush.
+     */
+    public synchronized void flush() throws InterruptedException {
+        epoch++;
+        try {
+            Iterator<Entry<T>> it = window.values().iterator();
+            while (it.hasNext()) {
+                Entry<T> entry = it.next();
+                dispatcher.dispatch(entry.mutation, entry.size, entry.partitionKeyHash);
+                it.remove();
+            }
+        } finally {
+            if (!window.isEmpty() && !flushExecutor.isShutdown()) {
+                // a new window for the remaining mutations
+                final long windowEpoch = epoch;
+                flushExecutor.schedule(() -> flush(windowEpoch), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the number of pending mutations.
+     */
+    public synchronized int size() {
+        return window.size();
+    }
+
+    @Override
+    public void close() {
+        flushExecutor.shutdownNow();
+    }
+}
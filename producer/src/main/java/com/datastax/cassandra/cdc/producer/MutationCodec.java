@@ -0,0 +1,301 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.ClusteringRange;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Binary serialization of a {@link Mutation} without its table metadata,
+ * resolved by keyspace and table name when deserialized.
+ *
+ * Cell values are encoded explicitly by type: the CQL native protocol serialized values, including UDT and tuple values,
+ * are bytes, and the frozen collections of the primary keys are encoded element by element.
+ * Other value types are not supported.
+ *
+ * Each record starts with the {@link #FORMAT_VERSION}, so that a record written by another producer version is rejected
+ * instead of being decoded with the wrong layout.
+ */
+public class MutationCodec {
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte BOOLEAN = 2;
+    static final byte BYTE = 3;
+    static final byte SHORT = 4;
+    static final byte INT = 5;
+    static final byte LONG = 6;
+    static final byte FLOAT = 7;
+    static final byte DOUBLE = 8;
+    static final byte UUID_TYPE = 9;
+    static final byte DATE = 10;
+    static final byte BYTES = 11;
+    static final byte BIG_INTEGER = 12;
+    static final byte BIG_DECIMAL = 13;
+    static final byte INET_ADDRESS = 14;
+    // 15 was a java serialized value, no longer supported
+    static final byte LIST = 16;
+    static final byte SET = 17;
+    static final byte MAP = 18;
+
+    static final CellData.ColumnType[] COLUMN_TYPES = CellData.ColumnType.values();
+
+    public static void serialize(Mutation<?> mutation, DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(mutation.getCommitLogPosition().segmentId);
+        out.writeInt(mutation.getCommitLogPosition().position);
+
+        SourceInfo source = mutation.getSource();
+        writeNullableString(source.cluster, out);
+        writeValue(source.nodeId, out);
+        out.writeUTF(source.keyspace);
+        out.writeUTF(source.table);
+        out.writeLong(mutation.getTsMicros());
+
+        out.writeBoolean(mutation.isShouldMarkOffset());
+        writeNullableString(mutation.getMd5Digest(), out);
+
+        List<CellData> cells = mutation.getRowData().cells();
+        out.writeInt(cells.size());
+        for (CellData cell : cells) {
+            out.writeUTF(cell.name);
+            out.writeByte(cell.columnType.ordinal());
+            writeValue(cell.value, out);
+            writeValue(cell.deletionTs, out);
+        }
+
+        ClusteringRange clusteringRange = mutation.getRowData().getClusteringRange();
+        out.writeBoolean(clusteringRange != null);
+        if (clusteringRange != null)
+            writeBytes(clusteringRange.encode(), out);
+    }
+
+    /**
+     * Deserialize a mutation.
+     * @param metadataResolver resolve the table metadata by keyspace and table name
+     * @return the mutation, or null when the table metadata cannot be resolved
+     * @throws IOException when the record has another format version
+     */
+    public static <T> Mutation<T> deserialize(DataInput in, BiFunction<String, String, T> metadataResolver) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Unsupported mutation format version=" + version);
+        CommitLogPosition commitLogPosition = new CommitLogPosition(in.readLong(), in.readInt());
+
+        String cluster = readNullableString(in);
+        UUID nodeId = (UUID) readValue(in);
+        String keyspace = in.readUTF();
+        String table = in.readUTF();
+        long tsMicros = in.readLong();
+        SourceInfo source = new SourceInfo(cluster, nodeId, keyspace, table);
+
+        boolean shouldMarkOffset = in.readBoolean();
+        String md5Digest = readNullableString(in);
+
+        RowData rowData = new RowData();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            CellData.ColumnType columnType = COLUMN_TYPES[in.readByte()];
+            Object value = readValue(in);
+            Object deletionTs = readValue(in);
+            rowData.addCell(new CellData(name, value, deletionTs, columnType));
+        }
+        if (in.readBoolean())
+            rowData.setClusteringRange(ClusteringRange.decode(readBytes(in)));
+
+        T metadata = metadataResolver.apply(keyspace, table);
+        return metadata == null
+                ? null
+                : new Mutation<>(commitLogPosition, source, rowData, shouldMarkOffset, tsMicros, md5Digest, metadata);
+    }
+
+    static void writeNullableString(String s, DataOutput out) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            // writeUTF is limited to 64KB
+            writeBytes(((String) value).getBytes("UTF-8"), out);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof UUID) {
+            out.writeByte(UUID_TYPE);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof ByteBuffer) {
+            out.writeByte(BYTES);
+            ByteBuffer bb = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[bb.remaining()];
+            bb.get(bytes);
+            writeBytes(bytes, out);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger) value).toByteArray(), out);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(((BigDecimal) value).scale());
+            writeBytes(((BigDecimal) value).unscaledValue().toByteArray(), out);
+        } else if (value instanceof InetAddress) {
+            out.writeByte(INET_ADDRESS);
+            writeBytes(((InetAddress) value).getAddress(), out);
+        } else if (value instanceof List) {
+            out.writeByte(LIST);
+            out.writeInt(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                writeValue(element, out);
+            }
+        } else if (value instanceof Set) {
+            out.writeByte(SET);
+            out.writeInt(((Set<?>) value).size());
+            for (Object element : (Set<?>) value) {
+                writeValue(element, out);
+            }
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            out.writeInt(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeValue(entry.getKey(), out);
+                writeValue(entry.getValue(), out);
+            }
+        } else {
+            throw new NotSerializableException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), "UTF-8");
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case UUID_TYPE:
+                return new UUID(in.readLong(), in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            case BYTES:
+                return ByteBuffer.wrap(readBytes(in));
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case BIG_DECIMAL: {
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            }
+            case INET_ADDRESS:
+                return InetAddress.getByAddress(readBytes(in));
+            case LIST: {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case SET: {
+                int size = in.readInt();
+                Set<Object> set = new LinkedHashSet<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    set.add(readValue(in));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = in.readInt();
+                Map<Object, Object> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new StreamCorruptedException("Unknown value type " + type);
+        }
+    }
+}
@@ -19,9 +19,6 @@ import com.datastax.cassandra.cdc.producer.exceptions.CassandraConnectorTaskExce
 import io.debezium.function.BlockingConsumer;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Instant;
-import java.util.UUID;
-
 /**
  * Responsible for generating ChangeRecord and/or TombstoneRecord for create/update/delete events, as well as EOF events.
  */
@@ -33,43 +30,32 @@ public class MutationMaker<T> {
         this.config = config;
     }
 
-    public void insert(String cluster, UUID node, CommitLogPosition offsetPosition,
-                       String keyspace, String name, boolean snapshot,
-                       Instant tsMicro, RowData data,
+    public void insert(SourceInfo source, CommitLogPosition offsetPosition, long tsMicros, RowData data,
                        boolean markOffset, BlockingConsumer<Mutation<T>> consumer,
                        String md5Digest, T t) {
-        createRecord(cluster, node, offsetPosition, keyspace, name, snapshot, tsMicro,
-                data, markOffset, consumer, md5Digest, t);
+        createRecord(source, offsetPosition, tsMicros, data, markOffset, consumer, md5Digest, t);
     }
 
-    public void update(String cluster, UUID node, CommitLogPosition offsetPosition,
-                       String keyspace, String name, boolean snapshot,
-                       Instant tsMicro, RowData data,
+    public void update(SourceInfo source, CommitLogPosition offsetPosition, long tsMicros, RowData data,
                        boolean markOffset, BlockingConsumer<Mutation<T>> consumer,
                        String md5Digest, T t) {
-        createRecord(cluster, node, offsetPosition, keyspace, name, snapshot, tsMicro,
-                data, markOffset, consumer, md5Digest, t);
+        createRecord(source, offsetPosition, tsMicros, data, markOffset, consumer, md5Digest, t);
     }
 
-    public void delete(String cluster, UUID node, CommitLogPosition offsetPosition,
-                       String keyspace, String name, boolean snapshot,
-                       Instant tsMicro, RowData data,
+    public void delete(SourceInfo source, CommitLogPosition offsetPosition, long tsMicros, RowData data,
                        boolean markOffset, BlockingConsumer<Mutation<T>> consumer,
                        String md5Digest, T t) {
-        createRecord(cluster, node, offsetPosition, keyspace, name, snapshot, tsMicro,
-                data, markOffset, consumer, md5Digest, t);
+        createRecord(source, offsetPosition, tsMicros, data, markOffset, consumer, md5Digest, t);
     }
 
-    private void createRecord(String cluster, UUID node, CommitLogPosition offsetPosition,
-                              String keyspace, String name, boolean snapshot,
-                              Instant tsMicro, RowData data,
+    private void createRecord(SourceInfo source, CommitLogPosition offsetPosition, long tsMicros, RowData data,
                               boolean markOffset, BlockingConsumer<Mutation<T>> consumer,
                               String md5Digest, T t) {
         // TODO: filter columns
         RowData filteredData = data;
 
-        SourceInfo source = new SourceInfo(cluster, node, offsetPosition, keyspace, name, tsMicro);
-        Mutation<T> record = new Mutation<T>(offsetPosition, source, filteredData, markOffset, tsMicro.toEpochMilli(), md5Digest, t);
+        // the source is shared by all the mutations of the table, the offset position by all the rows of a commitlog entry.
+        Mutation<T> record = new Mutation<T>(offsetPosition, source, filteredData, markOffset, tsMicros, md5Digest, t);
         try {
             consumer.accept(record);
         }
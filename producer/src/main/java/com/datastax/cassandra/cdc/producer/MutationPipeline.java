@@ -0,0 +1,355 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Send mutations through the {@link MutationSender} with several send lanes and bounded windows of in-flight messages.
+ *
+ * Mutations are dispatched to one of the {@link ProducerConfig#sendLanes} lanes by a hash of their partition key,
+ * so mutations of the same primary key are always sent by the same lane, in commit log order. Each lane runs
+ * concurrently and sends without waiting for the previous acknowledgement, up to {@link ProducerConfig#maxInflightMessages}
+ * messages and {@link ProducerConfig#maxInflightBytes} bytes. When a send fails, all the in-flight mutations of the lane
+ * are re-sent in order after a {@link RetryPolicy} backoff, so the last delivery of each mutation keeps the commit log order.
+ * After too many consecutive failures, the {@link CircuitBreaker} opens and blocks the dispatch of new mutations
+ * until a retry succeeds.
+ *
+ * The offset is only advanced to the highest contiguously acknowledged mutation across all lanes,
+ * so a crash never skips an unacknowledged mutation.
+ */
+@Slf4j
+public class MutationPipeline<T> implements AutoCloseable {
+
+    static class Pending<T> {
+        final Mutation<T> mutation;
+        final long size;
+        long generation;
+        boolean acked;  // acknowledged in the lane, guarded by the lane
+        boolean done;   // released by the lane, guarded by the tracker
+
+        Pending(Mutation<T> mutation, long size) {
+            this.mutation = mutation;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Track pending mutations in commit log order and mark the offset of the highest contiguously released one.
+     */
+    class OffsetTracker {
+        private final ArrayDeque<Pending<T>> pending = new ArrayDeque<>();
+
+        synchronized void register(Pending<T> p) {
+            pending.addLast(p);
+        }
+
+        synchronized void release(Pending<T> p) {
+            p.done = true;
+            Mutation<T> last = null;
+            while (!pending.isEmpty() && pending.peekFirst().done) {
+                last = pending.pollFirst().mutation;
+            }
+            if (last != null) {
+                offsetWriter.markOffset(last);
+                notifyAll();
+            }
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized void drain() throws InterruptedException {
+            while (!pending.isEmpty()) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * An ordered send lane with its own queue, in-flight window and thread.
+     */
+    class Lane implements Runnable {
+        private final int id;
+        private final BlockingQueue<Pending<T>> queue;
+
+        // in-flight mutations in commit log order, guarded by this.
+        private final ArrayDeque<Pending<T>> inflight = new ArrayDeque<>();
+        private long inflightBytes = 0L;
+        // bumped on each re-send to ignore callbacks of the previous sends.
+        private long generation = 0L;
+        private boolean retryScheduled = false;
+        private int retryAttempts = 0;
+
+        // serialize sends to keep the commit log order.
+        private final ReentrantLock sendLock = new ReentrantLock();
+
+        Lane(int id) {
+            this.id = id;
+            this.queue = new ArrayBlockingQueue<>(maxInflightMessages);
+        }
+
+        void enqueue(Pending<T> p) throws InterruptedException {
+            queue.put(p);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                log.debug("Send lane {} interrupted", id);
+            }
+        }
+
+        private void send(Pending<T> p) throws InterruptedException {
+            synchronized (this) {
+                // always accept at least one mutation, whatever its size
+                while (!inflight.isEmpty() && (inflight.size() >= maxInflightMessages || inflightBytes + p.size > maxInflightBytes)) {
+                    wait();
+                }
+            }
+            sendLock.lock();
+            try {
+                synchronized (this) {
+                    p.generation = generation;
+                    inflight.addLast(p);
+                    inflightBytes += p.size;
+                }
+                doSend(p, p.generation);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void doSend(final Pending<T> p, final long gen) {
+            CompletionStage<?> stage;
+            try {
+                stage = mutationSender.sendMutationAsync(p.mutation);
+            } catch (Exception e) {
+                CompletableFuture<?> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                stage = future;
+            }
+            stage.whenComplete((r, t) -> {
+                if (t == null) {
+                    onAck(p, gen);
+                } else {
+                    onFailure(p, gen, t);
+                }
+            });
+        }
+
+        private void onAck(Pending<T> p, long gen) {
+            List<Pending<T>> released = new ArrayList<>();
+            synchronized (this) {
+                if (p.generation != gen)
+                    return;
+                p.acked = true;
+                retryAttempts = 0;
+                while (!inflight.isEmpty() && inflight.peekFirst().acked) {
+                    Pending<T> head = inflight.pollFirst();
+                    inflightBytes -= head.size;
+                    released.add(head);
+                }
+                if (!released.isEmpty())
+                    notifyAll();
+            }
+            onSent(p.mutation);
+            if (circuitBreaker.recordSuccess()) {
+                onCircuitBreakerStateChange(false);
+            }
+            for (Pending<T> r : released) {
+                offsetTracker.release(r);
+            }
+        }
+
+        private void onFailure(Pending<T> p, long gen, Throwable t) {
+            final int attempt;
+            synchronized (this) {
+                if (p.generation != gen || retryScheduled)
+                    return;
+                retryScheduled = true;
+                attempt = ++retryAttempts;
+            }
+            long backoffMs = retryPolicy.backoffMs(attempt);
+            onError(p.mutation, t, attempt, backoffMs);
+            if (circuitBreaker.recordFailure()) {
+                onCircuitBreakerStateChange(true);
+            }
+            retryExecutor.schedule(this::resend, backoffMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void resend() {
+            sendLock.lock();
+            try {
+                final List<Pending<T>> entries;
+                final long gen;
+                synchronized (this) {
+                    retryScheduled = false;
+                    gen = ++generation;
+                    for (Pending<T> p : inflight) {
+                        p.generation = gen;
+                        p.acked = false;
+                    }
+                    entries = new ArrayList<>(inflight);
+                }
+                log.info("Re-sending {} in-flight mutations of lane {}", entries.size(), id);
+                for (Pending<T> p : entries) {
+                    doSend(p, gen);
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        synchronized int inflightMessages() {
+            return inflight.size();
+        }
+
+        synchronized long inflightBytes() {
+            return inflightBytes;
+        }
+    }
+
+    private final MutationSender<T> mutationSender;
+    private final OffsetWriter offsetWriter;
+    private final int maxInflightMessages;
+    private final long maxInflightBytes;
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    private final OffsetTracker offsetTracker = new OffsetTracker();
+    private final List<Lane> lanes;
+    private final List<Thread> laneThreads;
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-send-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MutationPipeline(ProducerConfig config, MutationSender<T> mutationSender, OffsetWriter offsetWriter) {
+        this.mutationSender = mutationSender;
+        this.offsetWriter = offsetWriter;
+        this.maxInflightMessages = Math.max(1, config.maxInflightMessages);
+        this.maxInflightBytes = Math.max(1L, config.maxInflightBytes);
+        this.retryPolicy = new RetryPolicy(config);
+        this.circuitBreaker = new CircuitBreaker(config.circuitBreakerFailureThreshold);
+
+        int sendLanes = Math.max(1, config.sendLanes);
+        this.lanes = new ArrayList<>(sendLanes);
+        this.laneThreads = new ArrayList<>(sendLanes);
+        for (int i = 0; i < sendLanes; i++) {
+            Lane lane = new Lane(i);
+            Thread thread = new Thread(lane, "cdc-send-lane-" + i);
+            thread.setDaemon(true);
+            lanes.add(lane);
+            laneThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Called when a mutation is acknowledged by the broker.
+     */
+    protected void onSent(Mutation<T> mutation) {
+    }
+
+    /**
+     * Called when a mutation failed to be sent, before the in-flight mutations of its lane are re-sent.
+     * @param attempt the consecutive retry attempt of the lane
+     * @param backoffMs the delay before the retry
+     */
+    protected void onError(Mutation<T> mutation, Throwable t, int attempt, long backoffMs) {
+    }
+
+    /**
+     * Called when the circuit breaker opens or closes.
+     */
+    protected void onCircuitBreakerStateChange(boolean open) {
+    }
+
+    /**
+     * Dispatch a mutation to its send lane, blocks while the lane queue is full or the circuit breaker is open.
+     * @param mutation the mutation to send
+     * @param size the estimated size in bytes of the mutation
+     * @param partitionKeyHash the hash of the mutation partition key
+     */
+    public void send(Mutation<T> mutation, long size, int partitionKeyHash) throws InterruptedException {
+        circuitBreaker.awaitClosed();
+        Pending<T> p = new Pending<>(mutation, size);
+        offsetTracker.register(p);
+        lanes.get(Math.floorMod(partitionKeyHash, lanes.size())).enqueue(p);
+    }
+
+    /**
+     * Wait until all the dispatched mutations are acknowledged.
+     */
+    public void drain() throws InterruptedException {
+        offsetTracker.drain();
+    }
+
+    /**
+     * @return the number of dispatched and not yet acknowledged mutations.
+     */
+    public int pendingMessages() {
+        return offsetTracker.size();
+    }
+
+    public boolean isCircuitBreakerOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    public int inflightMessages() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            count += lane.inflightMessages();
+        }
+        return count;
+    }
+
+    public long inflightBytes() {
+        long bytes = 0L;
+        for (Lane lane : lanes) {
+            bytes += lane.inflightBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        for (Thread thread : laneThreads) {
+            thread.interrupt();
+        }
+        retryExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,458 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only spill log of memory-mapped segment files, between the commitlog reader and the {@link MutationPipeline}.
+ *
+ * Mutations are appended to the spill at disk speed, so the commitlog offset can be marked and the commitlog
+ * released without waiting for the broker. The commitlog offset is marked with the last spilled mutation each time
+ * the spill is forced to disk, so it is never ahead of the durable spill. A drain thread reads the spill in order and sends the mutations through
+ * the {@link MutationPipeline}, and the segments are deleted once all their mutations are acknowledged.
+ * When the spill reaches {@link ProducerConfig#spillMaxSize}, appending blocks until the drain frees a segment.
+ *
+ * Each record is the record length, a CRC32 of the record data and the record data. After a restart,
+ * the remaining segments are read up to the first invalid record and re-sent from their beginning.
+ */
+@Slf4j
+public class MutationSpill<T> implements AutoCloseable {
+
+    public static final String SEGMENT_PREFIX = "spill-";
+    public static final String SEGMENT_SUFFIX = ".log";
+    static final int HEADER_SIZE = 8;
+
+    static class Segment {
+        final long id;
+        final File file;
+        final MappedByteBuffer buffer;
+        volatile int writePosition = 0;
+        volatile boolean sealed = false;
+        int ackedPosition = 0;
+
+        Segment(long id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    static class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(1024);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    static class Dispatched<T> {
+        final Mutation<T> mutation;
+        final Segment segment;
+        final int end;
+        boolean done;
+
+        Dispatched(Mutation<T> mutation, Segment segment, int end) {
+            this.mutation = mutation;
+            this.segment = segment;
+            this.end = end;
+            this.done = mutation == null;
+        }
+    }
+
+    /**
+     * Acknowledge the drained mutations released by the pipeline.
+     */
+    class AckWriter implements OffsetWriter {
+        volatile CommitLogPosition position = new CommitLogPosition(0, 0);
+
+        @Override
+        public void markOffset(Mutation<?> mutation) {
+            synchronized (MutationSpill.this) {
+                for (Dispatched<T> d : dispatched) {
+                    d.done = true;
+                    if (d.mutation == mutation)
+                        break;
+                }
+                releaseDone();
+            }
+            position = mutation.getCommitLogPosition();
+        }
+
+        @Override
+        public CommitLogPosition offset(Optional<UUID> nodeId) {
+            return position;
+        }
+
+        @Override
+        public void flush(Optional<UUID> nodeId) {
+        }
+    }
+
+    private final File spillDir;
+    private final long segmentSize;
+    private final long maxSize;
+    private final long drainIntervalNanos;
+    private final BiFunction<String, String, T> metadataResolver;
+    private final AckWriter ackWriter = new AckWriter();
+    private final OffsetWriter commitLogOffsetWriter;
+
+    // guarded by this
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ArrayDeque<Dispatched<T>> dispatched = new ArrayDeque<>();
+    private Segment current = null;
+    // the last spilled mutation not yet forced to disk
+    private Mutation<T> lastSpilled = null;
+    private long nextSegmentId = 0;
+    private long sizeInBytes = 0;
+    private boolean closed = false;
+
+    // accessed by the drain thread only
+    private Segment readSegment = null;
+    private int readPosition = 0;
+
+    // guarded by this
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final CRC32 crc32 = new CRC32();
+    private Thread drainThread;
+
+    public MutationSpill(ProducerConfig config, BiFunction<String, String, T> metadataResolver) throws IOException {
+        this(config, metadataResolver, null);
+    }
+
+    /**
+     * @param commitLogOffsetWriter the commitlog offset writer, marked with the last spilled mutation once forced to disk, or null.
+     */
+    public MutationSpill(ProducerConfig config, BiFunction<String, String, T> metadataResolver, OffsetWriter commitLogOffsetWriter) throws IOException {
+        this.commitLogOffsetWriter = commitLogOffsetWriter;
+        this.spillDir = new File(config.spillDir);
+        this.segmentSize = config.spillSegmentSize;
+        this.maxSize = config.spillMaxSize;
+        this.drainIntervalNanos = config.spillDrainRate > 0 ? TimeUnit.SECONDS.toNanos(1) / config.spillDrainRate : 0L;
+        this.metadataResolver = metadataResolver;
+        if (!spillDir.exists() && !spillDir.mkdirs()) {
+            throw new IOException("Cannot create the spill directory " + spillDir);
+        }
+        recover();
+    }
+
+    /**
+     * Called when a mutation is appended to the spill.
+     */
+    protected void onSpilled(Mutation<T> mutation) {
+    }
+
+    /**
+     * Called when a spill segment is created or deleted.
+     * @param sizeInBytes the total size of the spill segments
+     * @param segments the number of spill segments
+     */
+    protected void onSpillSizeChange(long sizeInBytes, int segments) {
+    }
+
+    /**
+     * @return the offset writer of the drain pipeline, acknowledging the drained mutations.
+     */
+    public OffsetWriter offsetWriter() {
+        return ackWriter;
+    }
+
+    /**
+     * Start draining the spill to the pipeline.
+     */
+    public synchronized void start(MutationPipeline<T> pipeline) {
+        drainThread = new Thread(() -> drain(pipeline), "cdc-spill-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    private void recover() throws IOException {
+        File[] files = spillDir.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null)
+            return;
+        SortedMap<Long, File> sortedFiles = new TreeMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            sortedFiles.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+        }
+        for (Map.Entry<Long, File> entry : sortedFiles.entrySet()) {
+            Segment segment = new Segment(entry.getKey(), entry.getValue(), map(entry.getValue(), entry.getValue().length()));
+            segment.writePosition = validLength(segment.buffer);
+            segment.sealed = true;
+            nextSegmentId = entry.getKey() + 1;
+            if (segment.writePosition == 0) {
+                delete(segment);
+            } else {
+                segments.addLast(segment);
+                sizeInBytes += segment.buffer.capacity();
+                log.info("Recovered spill segment={} length={}", segment.file, segment.writePosition);
+            }
+        }
+        onSpillSizeChange(sizeInBytes, segments.size());
+    }
+
+    /**
+     * @return the length of the valid records of a segment.
+     */
+    int validLength(ByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity())
+                break;
+            if (crc(buffer, position + HEADER_SIZE, length) != buffer.getInt(position + 4))
+                break;
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(offset);
+        bb.limit(offset + length);
+        crc.update(bb);
+        return (int) crc.getValue();
+    }
+
+    static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void delete(Segment segment) {
+        if (!segment.file.delete()) {
+            log.warn("Cannot delete the spill segment={}", segment.file);
+        }
+    }
+
+    /**
+     * Append a mutation to the spill, blocks while the spill is full.
+     * @param mutation the mutation to spill
+     * @param size the estimated size in bytes of the mutation
+     * @param partitionKeyHash the hash of the mutation partition key
+     */
+    public synchronized void append(Mutation<T> mutation, long size, int partitionKeyHash) throws IOException, InterruptedException {
+        recordBuffer.reset();
+        DataOutputStream out = new DataOutputStream(recordBuffer);
+        out.writeLong(size);
+        out.writeInt(partitionKeyHash);
+        MutationCodec.serialize(mutation, out);
+        out.flush();
+        int length = recordBuffer.size();
+
+        if (current == null || current.buffer.capacity() - current.writePosition < HEADER_SIZE + length) {
+            rotate(HEADER_SIZE + length);
+        }
+        crc32.reset();
+        crc32.update(recordBuffer.buffer(), 0, length);
+        int position = current.writePosition;
+        ByteBuffer bb = current.buffer.duplicate();
+        bb.position(position + HEADER_SIZE);
+        bb.put(recordBuffer.buffer(), 0, length);
+        bb.putInt(position + 4, (int) crc32.getValue());
+        // the length is written last, a zero length marks the end of the segment
+        bb.putInt(position, length);
+        current.writePosition = position + HEADER_SIZE + length;
+        lastSpilled = mutation;
+        notifyAll();
+        onSpilled(mutation);
+    }
+
+    private void rotate(int recordSize) throws IOException, InterruptedException {
+        if (current != null) {
+            force();
+            current.sealed = true;
+            current = null;
+            releaseDone();
+        }
+        long size = Math.max(segmentSize, recordSize);
+        while (!closed && !segments.isEmpty() && sizeInBytes + size > maxSize) {
+            wait();
+        }
+        if (closed)
+            throw new InterruptedException("spill closed");
+        File file = new File(spillDir, SEGMENT_PREFIX + nextSegmentId + SEGMENT_SUFFIX);
+        current = new Segment(nextSegmentId++, file, map(file, size));
+        segments.addLast(current);
+        sizeInBytes += size;
+        onSpillSizeChange(sizeInBytes, segments.size());
+    }
+
+    /**
+     * Write the spill to disk, and mark the commitlog offset of the last spilled mutation.
+     */
+    public synchronized void sync() {
+        if (current != null) {
+            force();
+        }
+    }
+
+    // guarded by this, the previous segments are forced when sealed
+    private void force() {
+        current.buffer.force();
+        if (lastSpilled != null) {
+            if (commitLogOffsetWriter != null) {
+                commitLogOffsetWriter.markOffset(lastSpilled);
+            }
+            lastSpilled = null;
+        }
+    }
+
+    // guarded by this
+    private void releaseDone() {
+        while (!dispatched.isEmpty() && dispatched.peekFirst().done) {
+            Dispatched<T> d = dispatched.pollFirst();
+            d.segment.ackedPosition = d.end;
+        }
+        boolean deleted = false;
+        while (!segments.isEmpty()) {
+            Segment head = segments.peekFirst();
+            if (!head.sealed || head.ackedPosition < head.writePosition)
+                break;
+            segments.pollFirst();
+            sizeInBytes -= head.buffer.capacity();
+            delete(head);
+            deleted = true;
+            log.debug("Spill segment={} drained", head.file);
+        }
+        if (deleted) {
+            notifyAll();
+            onSpillSizeChange(sizeInBytes, segments.size());
+        }
+    }
+
+    private Segment nextSegment(Segment segment) {
+        for (Segment s : segments) {
+            if (s.id > segment.id)
+                return s;
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the next record to read.
+     * @return the segment of the next record, or null when closed.
+     */
+    private synchronized Segment awaitRecord() throws InterruptedException {
+        while (!closed) {
+            if (readSegment == null) {
+                readSegment = segments.peekFirst();
+                readPosition = 0;
+            } else if (readPosition >= readSegment.writePosition && readSegment.sealed) {
+                Segment next = nextSegment(readSegment);
+                if (next != null) {
+                    readSegment = next;
+                    readPosition = 0;
+                    continue;
+                }
+            }
+            if (readSegment != null && readPosition < readSegment.writePosition)
+                return readSegment;
+            wait();
+        }
+        return null;
+    }
+
+    private void drain(MutationPipeline<T> pipeline) {
+        final CRC32 checksum = new CRC32();
+        long nextDrainNanos = System.nanoTime();
+        try {
+            Segment segment;
+            while ((segment = awaitRecord()) != null) {
+                // records below the write position are immutable
+                ByteBuffer bb = segment.buffer.duplicate();
+                int length = bb.getInt(readPosition);
+                int expectedChecksum = bb.getInt(readPosition + 4);
+                byte[] record = new byte[length];
+                bb.position(readPosition + HEADER_SIZE);
+                bb.get(record);
+                readPosition += HEADER_SIZE + length;
+
+                Mutation<T> mutation = null;
+                long size = 0;
+                int partitionKeyHash = 0;
+                checksum.reset();
+                checksum.update(record, 0, length);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    log.error("Invalid checksum in spill segment={}, skipping record", segment.file);
+                } else {
+                    try {
+                        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                        size = in.readLong();
+                        partitionKeyHash = in.readInt();
+                        mutation = MutationCodec.deserialize(in, metadataResolver);
+                        if (mutation == null)
+                            log.warn("Table metadata not found, skipping spilled mutation in segment={}", segment.file);
+                    } catch (IOException e) {
+                        log.error("Cannot deserialize spilled mutation in segment=" + segment.file, e);
+                    }
+                }
+
+                synchronized (this) {
+                    dispatched.addLast(new Dispatched<>(mutation, segment, readPosition));
+                    if (mutation == null) {
+                        releaseDone();
+                        continue;
+                    }
+                }
+                if (drainIntervalNanos > 0) {
+                    long delay = nextDrainNanos - System.nanoTime();
+                    if (delay > 0)
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    nextDrainNanos = Math.max(nextDrainNanos, System.nanoTime() - drainIntervalNanos) + drainIntervalNanos;
+                }
+                pipeline.send(mutation, size, partitionKeyHash);
+            }
+        } catch (InterruptedException e) {
+            log.debug("Spill drain interrupted");
+        }
+    }
+
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            sync();
+            notifyAll();
+        }
+        if (drainThread != null) {
+            drainThread.interrupt();
+        }
+    }
+}
@@ -18,28 +18,64 @@ package com.datastax.cassandra.cdc.producer;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Persist the commitlog offset in the commitlog_offset.dat file.
+ *
+ * The acknowledged offsets are group-committed by a background thread according to the {@link OffsetFlushPolicy}
+ * configured by {@link ProducerConfig#offsetFlushIntervalMs} and {@link ProducerConfig#offsetFlushMaxMutations},
+ * so the acknowledgement callbacks never do file I/O. The offset file is replaced atomically by a synced temporary file.
+ */
 @Slf4j
 public class OffsetFileWriter implements OffsetWriter, AutoCloseable {
     public static final String COMMITLOG_OFFSET_FILE = "commitlog_offset.dat";
 
     private final File offsetFile;
+    private final File tmpOffsetFile;
     private AtomicReference<CommitLogPosition> fileOffsetRef = new AtomicReference<>(new CommitLogPosition(0,0));
+    // sync section checkpoint, persisted on the second line of the offset file
+    private AtomicReference<CommitLogPosition> checkpointRef = new AtomicReference<>(null);
 
     private final OffsetFlushPolicy offsetFlushPolicy;
     private volatile long timeOfLastFlush = System.currentTimeMillis();
-    private volatile long notCommittedEvents = 0L;
+    private final AtomicLong notCommittedEvents = new AtomicLong(0L);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cdc-offset-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public OffsetFileWriter(String cdcLogDir) throws IOException {
-        this.offsetFlushPolicy = new OffsetFlushPolicy.AlwaysFlushOffsetPolicy();
+        this(new ProducerConfig(), cdcLogDir);
+    }
+
+    public OffsetFileWriter(ProducerConfig config, String cdcLogDir) throws IOException {
+        this.offsetFlushPolicy = config.offsetFlushIntervalMs > 0
+                ? OffsetFlushPolicy.periodic(Duration.ofMillis(config.offsetFlushIntervalMs), config.offsetFlushMaxMutations)
+                : OffsetFlushPolicy.always();
         this.offsetFile = new File(cdcLogDir, COMMITLOG_OFFSET_FILE);
+        this.tmpOffsetFile = new File(cdcLogDir, COMMITLOG_OFFSET_FILE + ".tmp");
         init();
+        if (config.offsetFlushIntervalMs > 0) {
+            // bound the replay after a crash when no more mutations are acknowledged
+            flushExecutor.scheduleWithFixedDelay(this::flushIfNotCommitted,
+                    config.offsetFlushIntervalMs, config.offsetFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -50,14 +86,34 @@ public class OffsetFileWriter implements OffsetWriter, AutoCloseable {
     @Override
     public void markOffset(Mutation<?> mutation) {
         this.fileOffsetRef.set(mutation.getCommitLogPosition());
-        notCommittedEvents++;
+        long events = notCommittedEvents.incrementAndGet();
         long now = System.currentTimeMillis();
         long timeSinceLastFlush = now - timeOfLastFlush;
-        if(offsetFlushPolicy.shouldFlush(Duration.ofMillis(timeSinceLastFlush), notCommittedEvents)) {
-            flush(Optional.empty());
+        if(offsetFlushPolicy.shouldFlush(Duration.ofMillis(timeSinceLastFlush), events) && flushScheduled.compareAndSet(false, true)) {
+            // the offsets marked until the flush runs are committed together
+            flushExecutor.execute(() -> {
+                flushScheduled.set(false);
+                saveOffset();
+            });
+        }
+    }
+
+    private void flushIfNotCommitted() {
+        if (notCommittedEvents.get() > 0) {
+            saveOffset();
         }
     }
 
+    @Override
+    public void markCheckpoint(CommitLogPosition sectionPosition) {
+        this.checkpointRef.set(sectionPosition);
+    }
+
+    @Override
+    public CommitLogPosition checkpoint() {
+        return this.checkpointRef.get();
+    }
+
     @Override
     public void flush(Optional<UUID> nodeId) {
         saveOffset();
@@ -65,6 +121,13 @@ public class OffsetFileWriter implements OffsetWriter, AutoCloseable {
 
     @Override
     public void close() {
+        flushExecutor.shutdownNow();
+        try {
+            // a dequeued flush must not rewrite the temporary file after close
+            flushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         saveOffset();
     }
 
@@ -78,12 +141,22 @@ public class OffsetFileWriter implements OffsetWriter, AutoCloseable {
     }
 
     private synchronized void saveOffset() {
-        try(FileWriter out = new FileWriter(this.offsetFile)) {
-            final CommitLogPosition position = fileOffsetRef.get();
-            out.write(serializePosition(position));
-            notCommittedEvents = 0L;
+        final CommitLogPosition position = fileOffsetRef.get();
+        final CommitLogPosition checkpoint = checkpointRef.get();
+        long events = notCommittedEvents.get();
+        StringBuilder sb = new StringBuilder(serializePosition(position));
+        if (checkpoint != null) {
+            sb.append('\n').append(serializePosition(checkpoint));
+        }
+        try {
+            try (FileOutputStream out = new FileOutputStream(this.tmpOffsetFile)) {
+                out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            Files.move(tmpOffsetFile.toPath(), offsetFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            notCommittedEvents.addAndGet(-events);
             timeOfLastFlush = System.currentTimeMillis();
-            log.debug("Flush offset=" + position);
+            log.debug("Flush offset={} checkpoint={}", position, checkpoint);
         } catch (IOException e) {
             log.error("Failed to save offset for file " + offsetFile.getName(), e);
         }
@@ -92,7 +165,11 @@ public class OffsetFileWriter implements OffsetWriter, AutoCloseable {
     private synchronized void loadOffset() throws IOException {
         try(BufferedReader br = new BufferedReader(new FileReader(offsetFile))) {
             fileOffsetRef.set(deserializePosition(br.readLine()));
-            log.debug("file offset={}", fileOffsetRef.get());
+            String checkpoint = br.readLine();
+            if (checkpoint != null && !checkpoint.isEmpty()) {
+                checkpointRef.set(deserializePosition(checkpoint));
+            }
+            log.debug("file offset={} checkpoint={}", fileOffsetRef.get(), checkpointRef.get());
         } catch (IOException e) {
             log.error("Failed to load offset for file " + offsetFile.getName(), e);
             throw e;
@@ -0,0 +1,42 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A compacted broker topic keeping the last commitlog offset of each node, see {@link ProducerConfig#offsetTopic}.
+ */
+public interface OffsetTopic extends AutoCloseable {
+
+    /**
+     * Publish the offset of a node, the topic compaction keeps the last published value of each key.
+     * @param key the node key
+     * @param value the serialized offset
+     * @return completed when the broker acknowledged the offset.
+     */
+    CompletionStage<?> publish(String key, String value) throws Exception;
+
+    /**
+     * Read the topic up to its last message.
+     * @param key the node key
+     * @return the last offset published for the node, or null.
+     */
+    String read(String key) throws Exception;
+
+    @Override
+    void close();
+}
@@ -18,12 +18,41 @@ package com.datastax.cassandra.cdc.producer;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Periodically persist the last sent offset to recover from that checkpoint.
  */
 public interface OffsetWriter {
 
+    /**
+     * Create the offset writer configured by {@link ProducerConfig#offsetStore}.
+     */
+    static OffsetWriter create(ProducerConfig config, String cdcLogDir) throws IOException {
+        return create(config, cdcLogDir, null, null);
+    }
+
+    /**
+     * Create the offset writer configured by {@link ProducerConfig#offsetStore}.
+     * @param offsetTopicSupplier the offset topic of the broker offset store, or null if not supported.
+     * @param nodeKey the key of the node in the offset topic.
+     */
+    static OffsetWriter create(ProducerConfig config, String cdcLogDir, Supplier<OffsetTopic> offsetTopicSupplier, String nodeKey) throws IOException {
+        switch (config.offsetStore) {
+            case "file":
+                return new OffsetFileWriter(config, cdcLogDir);
+            case "mmap":
+                return new MappedOffsetWriter(config, cdcLogDir);
+            case "broker":
+                if (offsetTopicSupplier == null) {
+                    throw new IllegalArgumentException("Unsupported offset store " + config.offsetStore);
+                }
+                return new BrokerOffsetWriter(config, new OffsetFileWriter(config, cdcLogDir), offsetTopicSupplier.get(), nodeKey);
+            default:
+                throw new IllegalArgumentException("Unsupported offset store " + config.offsetStore);
+        }
+    }
+
     /**
      * Set the current offset.
      * @param mutation
@@ -40,6 +69,22 @@ public interface OffsetWriter {
         return offset(Optional.empty());
     }
 
+    /**
+     * Set the sync section checkpoint, the position of a sync section from which the segment of the offset
+     * can be read again without missing a mutation after the offset. Persisted with the offset.
+     * @param sectionPosition
+     */
+    default void markCheckpoint(CommitLogPosition sectionPosition) {
+    }
+
+    /**
+     * Get the sync section checkpoint.
+     * @return the checkpoint, or null if unknown.
+     */
+    default CommitLogPosition checkpoint() {
+        return null;
+    }
+
     /**
      * Persist the offset
      * @throws IOException
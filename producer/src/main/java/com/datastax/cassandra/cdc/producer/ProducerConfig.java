@@ -62,16 +62,196 @@ public class ProducerConfig {
     public static final Setting<Boolean> EMIT_TOMBSTONE_ON_DELETE_SETTING =
             new Setting<>(EMIT_TOMBSTONE_ON_DELETE, Plateform.ALL, (c,s) -> c.emitTombstoneOnDelete = Boolean.parseBoolean(s), c -> c.emitTombstoneOnDelete);
 
+    public static final String MAX_INFLIGHT_MESSAGES = "maxInflightMessages";
+    public int maxInflightMessages = Integer.getInteger(CDC_PROPERTY_PREFIX + MAX_INFLIGHT_MESSAGES, 1000);
+    public static final Setting<Integer> MAX_INFLIGHT_MESSAGES_SETTING =
+            new Setting<>(MAX_INFLIGHT_MESSAGES, Plateform.ALL, (c,s) -> c.maxInflightMessages = Integer.parseInt(s), c -> c.maxInflightMessages);
+
+    public static final String MAX_INFLIGHT_BYTES = "maxInflightBytes";
+    public long maxInflightBytes = Long.getLong(CDC_PROPERTY_PREFIX + MAX_INFLIGHT_BYTES, 16 * 1024 * 1024L);
+    public static final Setting<Long> MAX_INFLIGHT_BYTES_SETTING =
+            new Setting<>(MAX_INFLIGHT_BYTES, Plateform.ALL, (c,s) -> c.maxInflightBytes = Long.parseLong(s), c -> c.maxInflightBytes);
+
+    public static final String SEND_LANES = "sendLanes";
+    public int sendLanes = Integer.getInteger(CDC_PROPERTY_PREFIX + SEND_LANES, 4);
+    public static final Setting<Integer> SEND_LANES_SETTING =
+            new Setting<>(SEND_LANES, Plateform.ALL, (c,s) -> c.sendLanes = Integer.parseInt(s), c -> c.sendLanes);
+
+    public static final String SEND_RETRY_INITIAL_BACKOFF_MS = "sendRetryInitialBackoffMs";
+    public long sendRetryInitialBackoffMs = Long.getLong(CDC_PROPERTY_PREFIX + SEND_RETRY_INITIAL_BACKOFF_MS, 100L);
+    public static final Setting<Long> SEND_RETRY_INITIAL_BACKOFF_MS_SETTING =
+            new Setting<>(SEND_RETRY_INITIAL_BACKOFF_MS, Plateform.ALL, (c,s) -> c.sendRetryInitialBackoffMs = Long.parseLong(s), c -> c.sendRetryInitialBackoffMs);
+
+    public static final String SEND_RETRY_MAX_BACKOFF_MS = "sendRetryMaxBackoffMs";
+    public long sendRetryMaxBackoffMs = Long.getLong(CDC_PROPERTY_PREFIX + SEND_RETRY_MAX_BACKOFF_MS, 60000L);
+    public static final Setting<Long> SEND_RETRY_MAX_BACKOFF_MS_SETTING =
+            new Setting<>(SEND_RETRY_MAX_BACKOFF_MS, Plateform.ALL, (c,s) -> c.sendRetryMaxBackoffMs = Long.parseLong(s), c -> c.sendRetryMaxBackoffMs);
+
+    public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD = "circuitBreakerFailureThreshold";
+    public int circuitBreakerFailureThreshold = Integer.getInteger(CDC_PROPERTY_PREFIX + CIRCUIT_BREAKER_FAILURE_THRESHOLD, 5);
+    public static final Setting<Integer> CIRCUIT_BREAKER_FAILURE_THRESHOLD_SETTING =
+            new Setting<>(CIRCUIT_BREAKER_FAILURE_THRESHOLD, Plateform.ALL, (c,s) -> c.circuitBreakerFailureThreshold = Integer.parseInt(s), c -> c.circuitBreakerFailureThreshold);
+
+    public static final String SPILL_ENABLED = "spillEnabled";
+    public boolean spillEnabled = Boolean.getBoolean(CDC_PROPERTY_PREFIX + SPILL_ENABLED);
+    public static final Setting<Boolean> SPILL_ENABLED_SETTING =
+            new Setting<>(SPILL_ENABLED, Plateform.ALL, (c,s) -> c.spillEnabled = Boolean.parseBoolean(s), c -> c.spillEnabled);
+
+    public static final String SPILL_DIR = "spillDir";
+    public String spillDir = System.getProperty(CDC_PROPERTY_PREFIX + SPILL_DIR, storageDir + File.separator + "cdc_spill");
+    public static final Setting<String> SPILL_DIR_SETTING =
+            new Setting<>(SPILL_DIR, Plateform.ALL, (c,s) -> c.spillDir = s, c -> c.spillDir);
+
+    public static final String SPILL_SEGMENT_SIZE = "spillSegmentSize";
+    public long spillSegmentSize = Long.getLong(CDC_PROPERTY_PREFIX + SPILL_SEGMENT_SIZE, 32 * 1024 * 1024L);
+    public static final Setting<Long> SPILL_SEGMENT_SIZE_SETTING =
+            new Setting<>(SPILL_SEGMENT_SIZE, Plateform.ALL, (c,s) -> c.spillSegmentSize = Long.parseLong(s), c -> c.spillSegmentSize);
+
+    public static final String SPILL_MAX_SIZE = "spillMaxSize";
+    public long spillMaxSize = Long.getLong(CDC_PROPERTY_PREFIX + SPILL_MAX_SIZE, 1024 * 1024 * 1024L);
+    public static final Setting<Long> SPILL_MAX_SIZE_SETTING =
+            new Setting<>(SPILL_MAX_SIZE, Plateform.ALL, (c,s) -> c.spillMaxSize = Long.parseLong(s), c -> c.spillMaxSize);
+
+    public static final String SPILL_DRAIN_RATE = "spillDrainRate";
+    public int spillDrainRate = Integer.getInteger(CDC_PROPERTY_PREFIX + SPILL_DRAIN_RATE, 0);
+    public static final Setting<Integer> SPILL_DRAIN_RATE_SETTING =
+            new Setting<>(SPILL_DRAIN_RATE, Plateform.ALL, (c,s) -> c.spillDrainRate = Integer.parseInt(s), c -> c.spillDrainRate);
+
+    public static final String FAN_OUT_SENDERS = "fanOutSenders";
+    public String fanOutSenders = System.getProperty(CDC_PROPERTY_PREFIX + FAN_OUT_SENDERS, "");
+    public static final Setting<String> FAN_OUT_SENDERS_SETTING =
+            new Setting<>(FAN_OUT_SENDERS, Plateform.ALL, (c,s) -> c.fanOutSenders = s, c -> c.fanOutSenders);
+
+    public static final String FAN_OUT_QUORUM = "fanOutQuorum";
+    public int fanOutQuorum = Integer.getInteger(CDC_PROPERTY_PREFIX + FAN_OUT_QUORUM, 0);
+    public static final Setting<Integer> FAN_OUT_QUORUM_SETTING =
+            new Setting<>(FAN_OUT_QUORUM, Plateform.ALL, (c,s) -> c.fanOutQuorum = Integer.parseInt(s), c -> c.fanOutQuorum);
+
     public static final String TOPIC_PREFIX = "topicPrefix";
     public String topicPrefix = System.getProperty(CDC_PROPERTY_PREFIX + TOPIC_PREFIX, "events-");
     public static final Setting<String> TOPIC_PREFIX_SETTING =
             new Setting<>(TOPIC_PREFIX, Plateform.ALL, (c,s) -> c.topicPrefix = s, c -> c.topicPrefix);
 
+    public static final String COMPACT_MUTATION_VALUE = "compactMutationValue";
+    public boolean compactMutationValue = Boolean.getBoolean(CDC_PROPERTY_PREFIX + COMPACT_MUTATION_VALUE);
+    public static final Setting<Boolean> COMPACT_MUTATION_VALUE_SETTING =
+            new Setting<>(COMPACT_MUTATION_VALUE, Plateform.ALL, (c,s) -> c.compactMutationValue = Boolean.parseBoolean(s), c -> c.compactMutationValue);
+
+    public static final String ROW_IMAGE_TABLES = "rowImageTables";
+    public String rowImageTables = System.getProperty(CDC_PROPERTY_PREFIX + ROW_IMAGE_TABLES, "");
+    public static final Setting<String> ROW_IMAGE_TABLES_SETTING =
+            new Setting<>(ROW_IMAGE_TABLES, Plateform.ALL, (c,s) -> c.rowImageTables = s, c -> c.rowImageTables);
+
+    public static final String INCLUDE_TABLES = "includeTables";
+    public String includeTables = System.getProperty(CDC_PROPERTY_PREFIX + INCLUDE_TABLES, "");
+    public static final Setting<String> INCLUDE_TABLES_SETTING =
+            new Setting<>(INCLUDE_TABLES, Plateform.ALL, (c,s) -> c.includeTables = s, c -> c.includeTables);
+
+    public static final String EXCLUDE_TABLES = "excludeTables";
+    public String excludeTables = System.getProperty(CDC_PROPERTY_PREFIX + EXCLUDE_TABLES, "");
+    public static final Setting<String> EXCLUDE_TABLES_SETTING =
+            new Setting<>(EXCLUDE_TABLES, Plateform.ALL, (c,s) -> c.excludeTables = s, c -> c.excludeTables);
+
+    public static final String COALESCE_WINDOW_MS = "coalesceWindowMs";
+    public long coalesceWindowMs = Long.getLong(CDC_PROPERTY_PREFIX + COALESCE_WINDOW_MS, 0L);
+    public static final Setting<Long> COALESCE_WINDOW_MS_SETTING =
+            new Setting<>(COALESCE_WINDOW_MS, Plateform.ALL, (c,s) -> c.coalesceWindowMs = Long.parseLong(s), c -> c.coalesceWindowMs);
+
+    public static final String COALESCE_MAX_MUTATIONS = "coalesceMaxMutations";
+    public int coalesceMaxMutations = Integer.getInteger(CDC_PROPERTY_PREFIX + COALESCE_MAX_MUTATIONS, 10000);
+    public static final Setting<Integer> COALESCE_MAX_MUTATIONS_SETTING =
+            new Setting<>(COALESCE_MAX_MUTATIONS, Plateform.ALL, (c,s) -> c.coalesceMaxMutations = Integer.parseInt(s), c -> c.coalesceMaxMutations);
+
+    public static final String SEGMENT_DECODER_THREADS = "segmentDecoderThreads";
+    public int segmentDecoderThreads = Integer.getInteger(CDC_PROPERTY_PREFIX + SEGMENT_DECODER_THREADS, 1);
+    public static final Setting<Integer> SEGMENT_DECODER_THREADS_SETTING =
+            new Setting<>(SEGMENT_DECODER_THREADS, Plateform.ALL, (c,s) -> c.segmentDecoderThreads = Integer.parseInt(s), c -> c.segmentDecoderThreads);
+
+    public static final String SEGMENT_DECODER_MAX_BUFFERED_BYTES = "segmentDecoderMaxBufferedBytes";
+    public long segmentDecoderMaxBufferedBytes = Long.getLong(CDC_PROPERTY_PREFIX + SEGMENT_DECODER_MAX_BUFFERED_BYTES, 8 * 1024 * 1024L);
+    public static final Setting<Long> SEGMENT_DECODER_MAX_BUFFERED_BYTES_SETTING =
+            new Setting<>(SEGMENT_DECODER_MAX_BUFFERED_BYTES, Plateform.ALL, (c,s) -> c.segmentDecoderMaxBufferedBytes = Long.parseLong(s), c -> c.segmentDecoderMaxBufferedBytes);
+
+    public static final String SECTION_DECODER_THREADS = "sectionDecoderThreads";
+    public int sectionDecoderThreads = Integer.getInteger(CDC_PROPERTY_PREFIX + SECTION_DECODER_THREADS, 1);
+    public static final Setting<Integer> SECTION_DECODER_THREADS_SETTING =
+            new Setting<>(SECTION_DECODER_THREADS, Plateform.ALL, (c,s) -> c.sectionDecoderThreads = Integer.parseInt(s), c -> c.sectionDecoderThreads);
+
+    public static final String OFFSET_FLUSH_INTERVAL_MS = "offsetFlushIntervalMs";
+    public long offsetFlushIntervalMs = Long.getLong(CDC_PROPERTY_PREFIX + OFFSET_FLUSH_INTERVAL_MS, 0L);
+    public static final Setting<Long> OFFSET_FLUSH_INTERVAL_MS_SETTING =
+            new Setting<>(OFFSET_FLUSH_INTERVAL_MS, Plateform.ALL, (c,s) -> c.offsetFlushIntervalMs = Long.parseLong(s), c -> c.offsetFlushIntervalMs);
+
+    public static final String OFFSET_FLUSH_MAX_MUTATIONS = "offsetFlushMaxMutations";
+    public long offsetFlushMaxMutations = Long.getLong(CDC_PROPERTY_PREFIX + OFFSET_FLUSH_MAX_MUTATIONS, 10000L);
+    public static final Setting<Long> OFFSET_FLUSH_MAX_MUTATIONS_SETTING =
+            new Setting<>(OFFSET_FLUSH_MAX_MUTATIONS, Plateform.ALL, (c,s) -> c.offsetFlushMaxMutations = Long.parseLong(s), c -> c.offsetFlushMaxMutations);
+
+    public static final String OFFSET_STORE = "offsetStore";
+    public String offsetStore = System.getProperty(CDC_PROPERTY_PREFIX + OFFSET_STORE, "file");
+    public static final Setting<String> OFFSET_STORE_SETTING =
+            new Setting<>(OFFSET_STORE, Plateform.ALL, (c,s) -> c.offsetStore = s, c -> c.offsetStore);
+
+    public static final String OFFSET_TOPIC = "offsetTopic";
+    public String offsetTopic = System.getProperty(CDC_PROPERTY_PREFIX + OFFSET_TOPIC, "cdc-offsets");
+    public static final Setting<String> OFFSET_TOPIC_SETTING =
+            new Setting<>(OFFSET_TOPIC, Plateform.ALL, (c,s) -> c.offsetTopic = s, c -> c.offsetTopic);
+
+    public static final String OFFSET_TOPIC_READ_TIMEOUT_MS = "offsetTopicReadTimeoutMs";
+    public long offsetTopicReadTimeoutMs = Long.getLong(CDC_PROPERTY_PREFIX + OFFSET_TOPIC_READ_TIMEOUT_MS, 30000L);
+    public static final Setting<Long> OFFSET_TOPIC_READ_TIMEOUT_MS_SETTING =
+            new Setting<>(OFFSET_TOPIC_READ_TIMEOUT_MS, Plateform.ALL, (c,s) -> c.offsetTopicReadTimeoutMs = Long.parseLong(s), c -> c.offsetTopicReadTimeoutMs);
+
     public static final String PULSAR_SERVICE_URL = "pulsarServiceUrl";
     public String pulsarServiceUrl = System.getProperty(CDC_PROPERTY_PREFIX + PULSAR_SERVICE_URL, "pulsar://localhost:6650");
     public static final Setting<String> PULSAR_SERVICE_URL_SETTING =
             new Setting<>(PULSAR_SERVICE_URL, Plateform.PULSAR, (c,s) -> c.pulsarServiceUrl = s, c -> c.pulsarServiceUrl);
 
+    public static final String PULSAR_BATCH_DELAY_IN_MS = "pulsarBatchDelayInMs";
+    public long pulsarBatchDelayInMs = Long.getLong(CDC_PROPERTY_PREFIX + PULSAR_BATCH_DELAY_IN_MS, 1L);
+    public static final Setting<Long> PULSAR_BATCH_DELAY_IN_MS_SETTING =
+            new Setting<>(PULSAR_BATCH_DELAY_IN_MS, Plateform.PULSAR, (c,s) -> c.pulsarBatchDelayInMs = Long.parseLong(s), c -> c.pulsarBatchDelayInMs);
+
+    public static final String PULSAR_BATCH_MAX_MESSAGES = "pulsarBatchMaxMessages";
+    public int pulsarBatchMaxMessages = Integer.getInteger(CDC_PROPERTY_PREFIX + PULSAR_BATCH_MAX_MESSAGES, 1000);
+    public static final Setting<Integer> PULSAR_BATCH_MAX_MESSAGES_SETTING =
+            new Setting<>(PULSAR_BATCH_MAX_MESSAGES, Plateform.PULSAR, (c,s) -> c.pulsarBatchMaxMessages = Integer.parseInt(s), c -> c.pulsarBatchMaxMessages);
+
+    public static final String PULSAR_BATCH_MAX_BYTES = "pulsarBatchMaxBytes";
+    public int pulsarBatchMaxBytes = Integer.getInteger(CDC_PROPERTY_PREFIX + PULSAR_BATCH_MAX_BYTES, 128 * 1024);
+    public static final Setting<Integer> PULSAR_BATCH_MAX_BYTES_SETTING =
+            new Setting<>(PULSAR_BATCH_MAX_BYTES, Plateform.PULSAR, (c,s) -> c.pulsarBatchMaxBytes = Integer.parseInt(s), c -> c.pulsarBatchMaxBytes);
+
+    public static final String PULSAR_BATCHER_TYPE = "pulsarBatcherType";
+    public String pulsarBatcherType = System.getProperty(CDC_PROPERTY_PREFIX + PULSAR_BATCHER_TYPE, "KEY_BASED");
+    public static final Setting<String> PULSAR_BATCHER_TYPE_SETTING =
+            new Setting<>(PULSAR_BATCHER_TYPE, Plateform.PULSAR, (c,s) -> c.pulsarBatcherType = s, c -> c.pulsarBatcherType);
+
+    public static final String PULSAR_COMPRESSION_TYPE = "pulsarCompressionType";
+    public String pulsarCompressionType = System.getProperty(CDC_PROPERTY_PREFIX + PULSAR_COMPRESSION_TYPE, "NONE");
+    public static final Setting<String> PULSAR_COMPRESSION_TYPE_SETTING =
+            new Setting<>(PULSAR_COMPRESSION_TYPE, Plateform.PULSAR, (c,s) -> c.pulsarCompressionType = s, c -> c.pulsarCompressionType);
+
+    public static final String PULSAR_MAX_PENDING_MESSAGES = "pulsarMaxPendingMessages";
+    public int pulsarMaxPendingMessages = Integer.getInteger(CDC_PROPERTY_PREFIX + PULSAR_MAX_PENDING_MESSAGES, 1000);
+    public static final Setting<Integer> PULSAR_MAX_PENDING_MESSAGES_SETTING =
+            new Setting<>(PULSAR_MAX_PENDING_MESSAGES, Plateform.PULSAR, (c,s) -> c.pulsarMaxPendingMessages = Integer.parseInt(s), c -> c.pulsarMaxPendingMessages);
+
+    public static final String PULSAR_MAX_PENDING_MESSAGES_ACROSS_PARTITIONS = "pulsarMaxPendingMessagesAcrossPartitions";
+    public int pulsarMaxPendingMessagesAcrossPartitions = Integer.getInteger(CDC_PROPERTY_PREFIX + PULSAR_MAX_PENDING_MESSAGES_ACROSS_PARTITIONS, 50000);
+    public static final Setting<Integer> PULSAR_MAX_PENDING_MESSAGES_ACROSS_PARTITIONS_SETTING =
+            new Setting<>(PULSAR_MAX_PENDING_MESSAGES_ACROSS_PARTITIONS, Plateform.PULSAR, (c,s) -> c.pulsarMaxPendingMessagesAcrossPartitions = Integer.parseInt(s), c -> c.pulsarMaxPendingMessagesAcrossPartitions);
+
+    public static final String PULSAR_CHUNKING_ENABLED = "pulsarChunkingEnabled";
+    public boolean pulsarChunkingEnabled = Boolean.getBoolean(CDC_PROPERTY_PREFIX + PULSAR_CHUNKING_ENABLED);
+    public static final Setting<Boolean> PULSAR_CHUNKING_ENABLED_SETTING =
+            new Setting<>(PULSAR_CHUNKING_ENABLED, Plateform.PULSAR, (c,s) -> c.pulsarChunkingEnabled = Boolean.parseBoolean(s), c -> c.pulsarChunkingEnabled);
+
+    public static final String PULSAR_SEND_TIMEOUT_MS = "pulsarSendTimeoutMs";
+    public long pulsarSendTimeoutMs = Long.getLong(CDC_PROPERTY_PREFIX + PULSAR_SEND_TIMEOUT_MS, 15000L);
+    public static final Setting<Long> PULSAR_SEND_TIMEOUT_MS_SETTING =
+            new Setting<>(PULSAR_SEND_TIMEOUT_MS, Plateform.PULSAR, (c,s) -> c.pulsarSendTimeoutMs = Long.parseLong(s), c -> c.pulsarSendTimeoutMs);
+
     public static final String KAFKA_BROKERS = "kafkaBrokers";
     public String kafkaBrokers = System.getProperty(CDC_PROPERTY_PREFIX + KAFKA_BROKERS, "localhost:9092");
     public static final Setting<String> KAFKA_BROKERS_SETTING =
@@ -173,8 +353,44 @@ public class ProducerConfig {
         set.add(CDC_DIR_POOL_INTERVAL_MS_SETTING);
         set.add(ERROR_COMMITLOG_REPROCESS_ENABLED_SETTING);
         set.add(EMIT_TOMBSTONE_ON_DELETE_SETTING);
+        set.add(MAX_INFLIGHT_MESSAGES_SETTING);
+        set.add(MAX_INFLIGHT_BYTES_SETTING);
+        set.add(SEND_LANES_SETTING);
+        set.add(SEND_RETRY_INITIAL_BACKOFF_MS_SETTING);
+        set.add(SEND_RETRY_MAX_BACKOFF_MS_SETTING);
+        set.add(CIRCUIT_BREAKER_FAILURE_THRESHOLD_SETTING);
+        set.add(SPILL_ENABLED_SETTING);
+        set.add(SPILL_DIR_SETTING);
+        set.add(SPILL_SEGMENT_SIZE_SETTING);
+        set.add(SPILL_MAX_SIZE_SETTING);
+        set.add(SPILL_DRAIN_RATE_SETTING);
+        set.add(FAN_OUT_SENDERS_SETTING);
+        set.add(FAN_OUT_QUORUM_SETTING);
         set.add(TOPIC_PREFIX_SETTING);
+        set.add(COMPACT_MUTATION_VALUE_SETTING);
+        set.add(ROW_IMAGE_TABLES_SETTING);
+        set.add(INCLUDE_TABLES_SETTING);
+        set.add(EXCLUDE_TABLES_SETTING);
+        set.add(COALESCE_WINDOW_MS_SETTING);
+        set.add(COALESCE_MAX_MUTATIONS_SETTING);
+        set.add(SEGMENT_DECODER_THREADS_SETTING);
+        set.add(SEGMENT_DECODER_MAX_BUFFERED_BYTES_SETTING);
+        set.add(SECTION_DECODER_THREADS_SETTING);
+        set.add(OFFSET_FLUSH_INTERVAL_MS_SETTING);
+        set.add(OFFSET_FLUSH_MAX_MUTATIONS_SETTING);
+        set.add(OFFSET_STORE_SETTING);
+        set.add(OFFSET_TOPIC_SETTING);
+        set.add(OFFSET_TOPIC_READ_TIMEOUT_MS_SETTING);
         set.add(PULSAR_SERVICE_URL_SETTING);
+        set.add(PULSAR_BATCH_DELAY_IN_MS_SETTING);
+        set.add(PULSAR_BATCH_MAX_MESSAGES_SETTING);
+        set.add(PULSAR_BATCH_MAX_BYTES_SETTING);
+        set.add(PULSAR_BATCHER_TYPE_SETTING);
+        set.add(PULSAR_COMPRESSION_TYPE_SETTING);
+        set.add(PULSAR_MAX_PENDING_MESSAGES_SETTING);
+        set.add(PULSAR_MAX_PENDING_MESSAGES_ACROSS_PARTITIONS_SETTING);
+        set.add(PULSAR_CHUNKING_ENABLED_SETTING);
+        set.add(PULSAR_SEND_TIMEOUT_MS_SETTING);
         set.add(KAFKA_SCHEMA_REGISTRY_URL_SETTING);
         set.add(KAFKA_BROKERS_SETTING);
         set.add(KAFKA_SCHEMA_REGISTRY_URL_SETTING);
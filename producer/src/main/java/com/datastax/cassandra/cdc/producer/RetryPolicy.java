@@ -0,0 +1,52 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter for the send retries.
+ *
+ * The backoff doubles on each attempt from the initial backoff up to the max backoff,
+ * and half of it is randomized to avoid all nodes retrying at the same time when the broker comes back.
+ */
+public class RetryPolicy {
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public RetryPolicy(long initialBackoffMs, long maxBackoffMs) {
+        this.initialBackoffMs = Math.max(1L, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+    }
+
+    public RetryPolicy(ProducerConfig config) {
+        this(config.sendRetryInitialBackoffMs, config.sendRetryMaxBackoffMs);
+    }
+
+    /**
+     * @param attempt the retry attempt, starting at 1
+     * @return the jittered delay before the retry in milliseconds
+     */
+    public long backoffMs(int attempt) {
+        long backoff = maxBackoffMs;
+        int shift = Math.max(0, attempt - 1);
+        if (shift < 63 && initialBackoffMs <= (maxBackoffMs >> shift)) {
+            backoff = initialBackoffMs << shift;
+        }
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+}
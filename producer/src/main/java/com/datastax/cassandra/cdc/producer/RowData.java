@@ -15,69 +15,185 @@
  */
 package com.datastax.cassandra.cdc.producer;
 
-import java.util.LinkedHashMap;
+import com.datastax.cassandra.cdc.ClusteringRange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
- * Row-level data about the source event. Contains a map where the key is the table column
- * name and the value is the {@link CellData}.
+ * Row-level data about the source event. Contains the {@link CellData} of the row in an array
+ * indexed by the column ordinals of the table {@link ColumnLayout}.
+ *
+ * Without a layout, or for a column unknown to the layout, the cells are appended after the layout columns.
+ * The derived lists and arrays are cached until the row is modified, and must not be modified.
  */
 public class RowData {
-    private final Map<String, CellData> cellMap = new LinkedHashMap<>();
+    private final ColumnLayout layout;
+    private CellData[] cells;
+    // number of used slots, the layout slots then the appended cells
+    private int size;
+    // clustering bounds of a range deletion, the clustering cells then have null values
+    private ClusteringRange clusteringRange;
+
+    private List<CellData> cellList;
+    private List<CellData> primaryKeyCells;
+    private String[] primaryKeyNames;
+    private String[] nonPrimaryKeyNames;
+
+    public RowData() {
+        this(null);
+    }
+
+    public RowData(ColumnLayout layout) {
+        this.layout = layout;
+        this.size = layout == null ? 0 : layout.size();
+        this.cells = new CellData[layout == null ? 8 : Math.max(1, layout.size())];
+    }
+
+    public ColumnLayout getLayout() {
+        return layout;
+    }
 
     public void addCell(CellData cellData) {
-        this.cellMap.put(cellData.name, cellData);
+        int slot = slot(cellData.name);
+        if (slot < 0) {
+            if (size == cells.length)
+                cells = Arrays.copyOf(cells, size * 2);
+            slot = size++;
+        }
+        setCell(slot, cellData);
+    }
+
+    /**
+     * Set the cell of a column ordinal of the {@link ColumnLayout}.
+     */
+    public void setCell(int ordinal, CellData cellData) {
+        cells[ordinal] = cellData;
+        invalidate();
     }
 
     public void removeCell(String columnName) {
-        if (hasCell(columnName)) {
-            cellMap.remove(columnName);
+        int slot = slot(columnName);
+        if (slot >= 0 && cells[slot] != null) {
+            setCell(slot, null);
         }
     }
 
     public boolean hasCell(String columnName) {
-        return cellMap.containsKey(columnName);
+        int slot = slot(columnName);
+        return slot >= 0 && cells[slot] != null;
     }
 
-    public RowData copy() {
-        RowData copy = new RowData();
-        for (CellData cellData : cellMap.values()) {
-            copy.addCell(cellData);
+    private int slot(String columnName) {
+        int start = 0;
+        if (layout != null) {
+            int ordinal = layout.ordinal(columnName);
+            if (ordinal >= 0)
+                return ordinal;
+            start = layout.size();
+        }
+        for (int i = start; i < size; i++) {
+            if (cells[i] != null && cells[i].name.equals(columnName))
+                return i;
         }
+        return -1;
+    }
+
+    private void invalidate() {
+        cellList = null;
+        primaryKeyCells = null;
+        primaryKeyNames = null;
+        nonPrimaryKeyNames = null;
+    }
+
+    public ClusteringRange getClusteringRange() {
+        return clusteringRange;
+    }
+
+    public void setClusteringRange(ClusteringRange clusteringRange) {
+        this.clusteringRange = clusteringRange;
+    }
+
+    public RowData copy() {
+        RowData copy = new RowData(layout);
+        copy.cells = Arrays.copyOf(cells, cells.length);
+        copy.size = size;
+        copy.clusteringRange = clusteringRange;
         return copy;
     }
 
+    public List<CellData> cells() {
+        if (cellList == null) {
+            List<CellData> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (cells[i] != null)
+                    list.add(cells[i]);
+            }
+            cellList = Collections.unmodifiableList(list);
+        }
+        return cellList;
+    }
+
     public List<CellData> primaryKeyCells() {
-        return this.cellMap.values().stream().filter(CellData::isPrimary).collect(Collectors.toList());
+        if (primaryKeyCells == null) {
+            List<CellData> list = new ArrayList<>();
+            for (CellData cell : cells()) {
+                if (cell.isPrimary())
+                    list.add(cell);
+            }
+            primaryKeyCells = Collections.unmodifiableList(list);
+        }
+        return primaryKeyCells;
     }
 
     public Object[] primaryKeyValues() {
-        return this.cellMap.values().stream()
-                .filter(CellData::isPrimary)
-                .map(cell->cell.value)
-                .toArray(Object[]::new);
+        List<CellData> primaryKeyCells = primaryKeyCells();
+        Object[] values = new Object[primaryKeyCells.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = primaryKeyCells.get(i).value;
+        }
+        return values;
     }
 
     public String[] primaryKeyNames() {
-        return this.cellMap.values().stream()
-                .filter(CellData::isPrimary)
-                .map(cell->cell.name)
-                .toArray(String[]::new);
+        if (primaryKeyNames == null) {
+            List<CellData> primaryKeyCells = primaryKeyCells();
+            String[] names = new String[primaryKeyCells.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = primaryKeyCells.get(i).name;
+            }
+            primaryKeyNames = names;
+        }
+        return primaryKeyNames;
     }
 
     public String[] nonPrimaryKeyNames() {
-        return this.cellMap.values().stream()
-                .filter(cd -> !cd.isPrimary())
-                .map(cell->cell.name)
-                .toArray(String[]::new);
+        if (nonPrimaryKeyNames == null) {
+            List<CellData> cells = cells();
+            String[] names = new String[cells.size() - primaryKeyCells().size()];
+            int i = 0;
+            for (CellData cell : cells) {
+                if (!cell.isPrimary())
+                    names[i++] = cell.name;
+            }
+            nonPrimaryKeyNames = names;
+        }
+        return nonPrimaryKeyNames;
     }
 
     @Override
     public String toString() {
-        return this.cellMap.toString();
+        StringBuilder sb = new StringBuilder("{");
+        for (CellData cell : cells()) {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(cell);
+        }
+        sb.append('}');
+        return clusteringRange == null ? sb.toString() : sb.append(clusteringRange).toString();
     }
 
     @Override
@@ -89,11 +205,11 @@ public class RowData {
             return false;
         }
         RowData rowData = (RowData) o;
-        return Objects.equals(cellMap, rowData.cellMap);
+        return Objects.equals(cells(), rowData.cells()) && Objects.equals(clusteringRange, rowData.clusteringRange);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(cellMap);
+        return Objects.hash(cells(), clusteringRange);
     }
 }
@@ -0,0 +1,313 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decode up to {@link ProducerConfig#segmentDecoderThreads} completed commitlog segments concurrently,
+ * and dispatch their mutations in segment order from the caller thread.
+ *
+ * The mutations made by a decoding thread are buffered with {@link #buffer(Mutation, long, int)} instead of being sent,
+ * so the per-key ordering and the offset advancement still follow the segment order, and a segment can be transferred
+ * once its mutations are dispatched and acknowledged. The buffered mutations are handed off to the dispatching thread
+ * as they are decoded, and a decoder waits while it buffers more than {@link ProducerConfig#segmentDecoderMaxBufferedBytes}.
+ */
+@Slf4j
+public class SegmentDecoderPool<T> implements AutoCloseable {
+
+    /**
+     * Read a commitlog segment with the commitlog read handler.
+     */
+    public interface SegmentReader {
+        void read(File file) throws Exception;
+    }
+
+    /**
+     * Decode a part of a commitlog segment with the commitlog read handler.
+     */
+    public interface Decoder {
+        void decode() throws Exception;
+    }
+
+    public static class DecodedMutation<T> {
+        final Mutation<T> mutation;
+        final long size;
+        final int partitionKeyHash;
+
+        DecodedMutation(Mutation<T> mutation, long size, int partitionKeyHash) {
+            this.mutation = mutation;
+            this.size = size;
+            this.partitionKeyHash = partitionKeyHash;
+        }
+    }
+
+    /**
+     * The mutations of a running decoder, handed off in commitlog order to the dispatching thread.
+     */
+    public static class Decoded<T> {
+        private final long maxBufferedBytes;
+        private final ArrayDeque<DecodedMutation<T>> mutations = new ArrayDeque<>();
+        private long bufferedBytes = 0L;
+        private boolean completed = false;
+        private boolean cancelled = false;
+        private Throwable failure;
+        private Future<?> future;
+
+        Decoded(long maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+        }
+
+        /**
+         * Buffer a decoded mutation, waiting while the buffer is full. A mutation larger than the buffer is buffered alone.
+         * The wait is managed so that a blocked {@link ForkJoinPool} worker does not starve the other decoders of the pool.
+         * @throws CancellationException when the decoder is cancelled.
+         */
+        void add(DecodedMutation<T> decoded) throws InterruptedException {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    synchronized (Decoded.this) {
+                        if (!isReleasable()) {
+                            Decoded.this.wait();
+                        }
+                    }
+                    return isReleasable();
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    synchronized (Decoded.this) {
+                        return cancelled || mutations.isEmpty() || bufferedBytes + decoded.size <= maxBufferedBytes;
+                    }
+                }
+            });
+            synchronized (this) {
+                if (cancelled) {
+                    throw new CancellationException("Decoding cancelled");
+                }
+                mutations.addLast(decoded);
+                bufferedBytes += decoded.size;
+                notifyAll();
+            }
+        }
+
+        synchronized void complete(Throwable failure) {
+            this.completed = true;
+            this.failure = failure;
+            notifyAll();
+        }
+
+        /**
+         * Wait for the next decoded mutation.
+         * @return the next mutation in commitlog order, or null when the decoder has completed.
+         * @throws Exception the decoding failure, once the mutations decoded before the failure are taken.
+         */
+        synchronized DecodedMutation<T> take() throws Exception {
+            while (mutations.isEmpty() && !completed) {
+                wait();
+            }
+            DecodedMutation<T> decoded = mutations.pollFirst();
+            if (decoded != null) {
+                bufferedBytes -= decoded.size;
+                notifyAll();
+                return decoded;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw (Exception) failure;
+            }
+            return null;
+        }
+
+        /**
+         * Stop the decoder, when its mutations are not dispatched.
+         * A {@link ForkJoinPool} task is not interrupted, so the waiting decoder is also released.
+         */
+        void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                mutations.clear();
+                bufferedBytes = 0L;
+                notifyAll();
+            }
+            future.cancel(true);
+        }
+    }
+
+    static class DecodedSegment<T> {
+        final File file;
+        final Decoded<T> decoded;
+
+        DecodedSegment(File file, Decoded<T> decoded) {
+            this.file = file;
+            this.decoded = decoded;
+        }
+    }
+
+    private final int threads;
+    private final long maxBufferedBytes;
+    private final ExecutorService executor;
+    // the mutations decoded by the current thread
+    private final ThreadLocal<Decoded<T>> decodedMutations = new ThreadLocal<>();
+    // submitted segments in segment order
+    private final Deque<DecodedSegment<T>> segments = new ArrayDeque<>();
+
+    public SegmentDecoderPool(ProducerConfig config) {
+        this.threads = config.segmentDecoderThreads;
+        this.maxBufferedBytes = Math.max(1L, config.segmentDecoderMaxBufferedBytes);
+        if (threads > 1) {
+            AtomicInteger threadId = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "cdc-segment-decoder-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+    /**
+     * @return true if completed segments are decoded concurrently.
+     */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * @return true if no segment is pending.
+     */
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * @return true if all the threads are busy or hold a decoded segment.
+     */
+    public boolean isFull() {
+        return segments.size() >= threads;
+    }
+
+    /**
+     * @return true if the segment file is pending.
+     */
+    public boolean contains(File file) {
+        for (DecodedSegment<T> segment : segments) {
+            if (segment.file.equals(file))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the oldest pending segment file, or null.
+     */
+    public File peek() {
+        return segments.isEmpty() ? null : segments.peekFirst().file;
+    }
+
+    /**
+     * Submit a completed segment to decode, segments must be submitted in segment order.
+     */
+    public void submit(File file, SegmentReader reader) {
+        segments.addLast(new DecodedSegment<>(file, decode(executor, () -> {
+            reader.read(file);
+            log.debug("Decoded commitlog file={}", file.getName());
+        })));
+    }
+
+    /**
+     * Run a decoder on the executor, buffering the mutations it sends until they are dispatched.
+     * @return the decoded mutations, to dispatch with {@link #dispatch(Decoded, MutationCoalescer.Dispatcher)}.
+     */
+    public Decoded<T> decode(ExecutorService executor, Decoder decoder) {
+        Decoded<T> decoded = new Decoded<>(maxBufferedBytes);
+        decoded.future = executor.submit(() -> {
+            decodedMutations.set(decoded);
+            Throwable failure = null;
+            try {
+                decoder.decode();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                decodedMutations.remove();
+                decoded.complete(failure);
+            }
+        });
+        return decoded;
+    }
+
+    /**
+     * Buffer a mutation made by a decoder, waiting while the decoder buffer is full.
+     * @return false if the current thread is not running a decoder, and the mutation must be sent.
+     */
+    public boolean buffer(Mutation<T> mutation, long size, int partitionKeyHash) throws InterruptedException {
+        Decoded<T> decoded = decodedMutations.get();
+        if (decoded == null)
+            return false;
+        decoded.add(new DecodedMutation<>(mutation, size, partitionKeyHash));
+        return true;
+    }
+
+    /**
+     * Dispatch the mutations of the oldest pending segment in commitlog order, as they are decoded.
+     * The segment is removed from the pool, even when its decoding failed.
+     * @throws Exception the decoding failure of the segment.
+     */
+    public void dispatchNext(MutationCoalescer.Dispatcher<T> dispatcher) throws Exception {
+        DecodedSegment<T> segment = segments.pollFirst();
+        dispatch(segment.decoded, dispatcher);
+    }
+
+    /**
+     * Dispatch the mutations of a decoder in commitlog order, until the decoder completes.
+     * The decoder is stopped if its mutations cannot be dispatched.
+     * @throws Exception the decoding failure, after the mutations decoded before the failure are dispatched.
+     */
+    public void dispatch(Decoded<T> decoded, MutationCoalescer.Dispatcher<T> dispatcher) throws Exception {
+        boolean dispatched = false;
+        try {
+            DecodedMutation<T> mutation;
+            while ((mutation = decoded.take()) != null) {
+                dispatcher.dispatch(mutation.mutation, mutation.size, mutation.partitionKeyHash);
+            }
+            dispatched = true;
+        } finally {
+            if (!dispatched) {
+                decoded.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Queue of the commitlog files to read, holding at most one entry per segment id, in segment order.
+ *
+ * A submission of a segment already queued is absorbed, the segment is read once with its latest synced position.
+ * A segment being read is no longer queued, so all the _cdc.idx updates received during the read are coalesced
+ * into a single re-read.
+ */
+@Slf4j
+public class SegmentQueue {
+    // queued commitlog files by segment id, guarded by this.
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private long absorbedSubmissions = 0L;
+
+    /**
+     * Called when the submission of a queued segment is absorbed.
+     */
+    protected void onAbsorbed(File file) {
+    }
+
+    /**
+     * Queue a commitlog file, unless its segment is already queued.
+     * @return true if the file is queued.
+     */
+    public synchronized boolean add(File file) {
+        long segmentId = CommitLogUtil.extractTimestamp(file.getName());
+        if (segments.putIfAbsent(segmentId, file) != null) {
+            absorbedSubmissions++;
+            log.trace("Absorbed submission of queued file={}", file.getName());
+            onAbsorbed(file);
+            return false;
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Remove the oldest queued commitlog file, waiting if the queue is empty.
+     */
+    public synchronized File take() throws InterruptedException {
+        while (segments.isEmpty()) {
+            wait();
+        }
+        return segments.pollFirstEntry().getValue();
+    }
+
+    /**
+     * Remove the oldest queued commitlog file.
+     * @return the file, or null if the queue is empty.
+     */
+    public synchronized File poll() {
+        Map.Entry<Long, File> entry = segments.pollFirstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+    public synchronized int size() {
+        return segments.size();
+    }
+
+    /**
+     * @return the number of absorbed submissions.
+     */
+    public synchronized long absorbedSubmissions() {
+        return absorbedSubmissions;
+    }
+}
@@ -20,11 +20,10 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.time.Instant;
 import java.util.UUID;
 
 /**
- * Metadata about the source of the change event
+ * Metadata about the source of the change event, shared by all the change events of a table.
  */
 @Getter
 @AllArgsConstructor
@@ -33,8 +32,6 @@ import java.util.UUID;
 public class SourceInfo  {
     public final String cluster;
     public final UUID nodeId;
-    public final CommitLogPosition commitLogPosition;
     public final String keyspace;
     public final String table;
-    public final Instant timestamp;
 }
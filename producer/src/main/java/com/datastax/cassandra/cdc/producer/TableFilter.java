@@ -0,0 +1,64 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Filter the CDC-enabled tables with the {@link ProducerConfig#includeTables} and {@link ProducerConfig#excludeTables}
+ * regular expressions on the {@code keyspace.table} name.
+ *
+ * The patterns are matched once per table id, so the partition updates of filtered tables are skipped with a single lookup.
+ */
+@Slf4j
+public class TableFilter<K> {
+    private final Pattern include;
+    private final Pattern exclude;
+    private final Map<K, Boolean> decisions = new ConcurrentHashMap<>();
+
+    public TableFilter(ProducerConfig config) {
+        this(config.includeTables, config.excludeTables);
+    }
+
+    TableFilter(String include, String exclude) {
+        this.include = include == null || include.isEmpty() ? null : Pattern.compile(include);
+        this.exclude = exclude == null || exclude.isEmpty() ? null : Pattern.compile(exclude);
+    }
+
+    /**
+     * @return true if the updates of the table must be published.
+     */
+    public boolean accept(K tableId, String keyspace, String table) {
+        if (include == null && exclude == null)
+            return true;
+        Boolean accepted = decisions.get(tableId);
+        if (accepted == null) {
+            accepted = accept(keyspace + "." + table);
+            decisions.put(tableId, accepted);
+            log.info("Table {}.{} accepted={}", keyspace, table, accepted);
+        }
+        return accepted;
+    }
+
+    boolean accept(String name) {
+        return (include == null || include.matcher(name).matches())
+                && (exclude == null || !exclude.matcher(name).matches());
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BrokerOffsetWriterTest {
+
+    /**
+     * In-memory compacted topic.
+     */
+    static class InMemoryOffsetTopic implements OffsetTopic {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final AtomicInteger publications = new AtomicInteger();
+        volatile CompletableFuture<Void> nextAck = null;
+        volatile boolean available = true;
+
+        @Override
+        public CompletionStage<?> publish(String key, String value) {
+            publications.incrementAndGet();
+            CompletableFuture<Void> ack = nextAck == null ? CompletableFuture.completedFuture(null) : nextAck;
+            return ack.thenRun(() -> values.put(key, value));
+        }
+
+        @Override
+        public String read(String key) throws IOException {
+            if (!available) {
+                throw new IOException("broker not available");
+            }
+            return values.get(key);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static BrokerOffsetWriter writer(Path dir, OffsetTopic topic) throws IOException {
+        return new BrokerOffsetWriter(new ProducerConfig(), new OffsetFileWriter(dir.toString()), topic, "node1");
+    }
+
+    @Test
+    public void testRecoverOnRebuiltDisk() throws Exception {
+        InMemoryOffsetTopic topic = new InMemoryOffsetTopic();
+        try (BrokerOffsetWriter writer = writer(Files.createTempDirectory("offset"), topic)) {
+            writer.markOffset(mutation(2, 100));
+            writer.markCheckpoint(new CommitLogPosition(2, 64));
+            writer.flush(Optional.empty());
+        }
+        // new empty cdc directory
+        try (BrokerOffsetWriter writer = writer(Files.createTempDirectory("offset"), topic)) {
+            assertEquals(new CommitLogPosition(2, 100), writer.offset());
+            assertEquals(new CommitLogPosition(2, 64), writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testLocalFallback() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        InMemoryOffsetTopic topic = new InMemoryOffsetTopic();
+        try (BrokerOffsetWriter writer = writer(dir, topic)) {
+            writer.markOffset(mutation(3, 10));
+        }
+        // broker behind the local file
+        topic.values.put("node1", "1:5");
+        try (BrokerOffsetWriter writer = writer(dir, topic)) {
+            assertEquals(new CommitLogPosition(3, 10), writer.offset());
+        }
+        // broker not available
+        topic.available = false;
+        try (BrokerOffsetWriter writer = writer(dir, topic)) {
+            assertEquals(new CommitLogPosition(3, 10), writer.offset());
+            assertNull(writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        try (BrokerOffsetWriter writer = writer(dir, new InMemoryOffsetTopic())) {
+            writer.markOffset(mutation(3, 10));
+        }
+        // broker lost while reading the topic
+        CountDownLatch readInterrupted = new CountDownLatch(1);
+        InMemoryOffsetTopic topic = new InMemoryOffsetTopic() {
+            @Override
+            public String read(String key) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    readInterrupted.countDown();
+                }
+                return "9:99";
+            }
+        };
+        ProducerConfig config = new ProducerConfig();
+        config.offsetTopicReadTimeoutMs = 200;
+        long start = System.currentTimeMillis();
+        try (BrokerOffsetWriter writer = new BrokerOffsetWriter(config, new OffsetFileWriter(dir.toString()), topic, "node1")) {
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertEquals(new CommitLogPosition(3, 10), writer.offset());
+            assertTrue(readInterrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testBatchedPublication() throws Exception {
+        InMemoryOffsetTopic topic = new InMemoryOffsetTopic();
+        topic.nextAck = new CompletableFuture<>();
+        try (BrokerOffsetWriter writer = writer(Files.createTempDirectory("offset"), topic)) {
+            for (int i = 1; i <= 100; i++) {
+                writer.markOffset(mutation(1, i));
+            }
+            // the offsets marked while a publication is in flight are published together
+            CompletableFuture<Void> ack = topic.nextAck;
+            topic.nextAck = null;
+            ack.complete(null);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"1:100".equals(topic.values.get("node1")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("1:100", topic.values.get("node1"));
+            assertTrue(topic.publications.get() <= 3, "publications=" + topic.publications.get());
+        }
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.offsetStore = "broker";
+        OffsetWriter writer = OffsetWriter.create(config, Files.createTempDirectory("offset").toString(), InMemoryOffsetTopic::new, "node1");
+        try {
+            assertEquals(BrokerOffsetWriter.class, writer.getClass());
+        } finally {
+            ((BrokerOffsetWriter) writer).close();
+        }
+    }
+}
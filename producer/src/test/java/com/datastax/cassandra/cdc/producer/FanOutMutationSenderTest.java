@@ -0,0 +1,89 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.datastax.cassandra.cdc.producer.MutationPipelineTest.PendingMutationSender;
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FanOutMutationSenderTest {
+
+    final PendingMutationSender pulsar = new PendingMutationSender();
+    final PendingMutationSender kafka = new PendingMutationSender();
+    final PendingMutationSender other = new PendingMutationSender();
+
+    FanOutMutationSender<String> fanOutSender(int quorum) {
+        ProducerConfig config = new ProducerConfig();
+        config.fanOutQuorum = quorum;
+        Map<String, MutationSender<String>> senders = new LinkedHashMap<>();
+        senders.put("pulsar", pulsar);
+        senders.put("kafka", kafka);
+        senders.put("other", other);
+        return new FanOutMutationSender<>(config, senders);
+    }
+
+    @Test
+    public void testAllBackends() throws Exception {
+        FanOutMutationSender<String> sender = fanOutSender(0);
+        assertEquals(3, sender.quorum());
+        CompletableFuture<?> result = sender.sendMutationAsync(mutation(1, 10)).toCompletableFuture();
+        pulsar.await(10).complete(null);
+        kafka.await(10).complete(null);
+        assertFalse(result.isDone());
+        assertEquals(1, sender.pendingMutations("other"));
+        assertEquals(0, sender.pendingMutations("kafka"));
+
+        other.await(10).complete(null);
+        assertTrue(result.isDone());
+        assertFalse(result.isCompletedExceptionally());
+        assertEquals(0, sender.lagMs("other"));
+    }
+
+    @Test
+    public void testQuorum() throws Exception {
+        FanOutMutationSender<String> sender = fanOutSender(2);
+        CompletableFuture<?> result = sender.sendMutationAsync(mutation(1, 10)).toCompletableFuture();
+        pulsar.await(10).completeExceptionally(new RuntimeException("broker unavailable"));
+        assertFalse(result.isDone());
+        kafka.await(10).complete(null);
+        other.await(10).complete(null);
+        assertTrue(result.isDone());
+        assertFalse(result.isCompletedExceptionally());
+        assertEquals(1, sender.errors("pulsar"));
+
+        // the quorum cannot be reached after two failures
+        result = sender.sendMutationAsync(mutation(1, 20)).toCompletableFuture();
+        kafka.await(20).completeExceptionally(new RuntimeException("broker unavailable"));
+        other.await(20).completeExceptionally(new RuntimeException("broker unavailable"));
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testNoFanOut() {
+        ProducerConfig config = new ProducerConfig();
+        config.fanOutSenders = "";
+        assertSame(pulsar, FanOutMutationSender.create(config, pulsar));
+    }
+}
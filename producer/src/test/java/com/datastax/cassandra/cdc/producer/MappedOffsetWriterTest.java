@@ -0,0 +1,96 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MappedOffsetWriterTest {
+
+    @Test
+    public void testReload() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            assertEquals(new CommitLogPosition(0, 0), writer.offset());
+            for (int i = 1; i <= 100; i++) {
+                writer.markOffset(mutation(2, i));
+            }
+            writer.markCheckpoint(new CommitLogPosition(2, 64));
+            writer.flush(Optional.empty());
+        }
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            assertEquals(new CommitLogPosition(2, 100), writer.offset());
+            assertEquals(new CommitLogPosition(2, 64), writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testTornSlot() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            writer.markOffset(mutation(3, 10));
+            writer.markOffset(mutation(3, 20));
+        }
+        // corrupt the newest slot, the initial slot is 1, then 0 and 1 again
+        File offsetFile = new File(dir.toFile(), MappedOffsetWriter.COMMITLOG_OFFSET_MAP_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(offsetFile, "rw")) {
+            file.seek(MappedOffsetWriter.SLOT_SIZE + 8);
+            file.writeInt(12345);
+        }
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            assertEquals(new CommitLogPosition(3, 10), writer.offset());
+            // the next update overwrites the corrupted slot
+            writer.markOffset(mutation(3, 30));
+        }
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            assertEquals(new CommitLogPosition(3, 30), writer.offset());
+        }
+    }
+
+    @Test
+    public void testMigrateOffsetFile() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        File textOffsetFile = new File(dir.toFile(), OffsetFileWriter.COMMITLOG_OFFSET_FILE);
+        Files.write(textOffsetFile.toPath(), OffsetFileWriter.serializePosition(new CommitLogPosition(4, 42)).getBytes(StandardCharsets.UTF_8));
+        try (MappedOffsetWriter writer = new MappedOffsetWriter(new ProducerConfig(), dir.toString())) {
+            assertEquals(new CommitLogPosition(4, 42), writer.offset());
+            assertNull(writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        ProducerConfig config = new ProducerConfig();
+        config.offsetStore = "mmap";
+        OffsetWriter writer = OffsetWriter.create(config, dir.toString());
+        try {
+            assertEquals(MappedOffsetWriter.class, writer.getClass());
+        } finally {
+            ((MappedOffsetWriter) writer).close();
+        }
+    }
+}
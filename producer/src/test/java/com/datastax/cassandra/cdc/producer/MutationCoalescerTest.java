@@ -0,0 +1,133 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.ClusteringRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MutationCoalescerTest {
+
+    static Mutation<String> mutation(int position, String id) {
+        return TestMutations.mutation(1, position, TestMutations.partitionKey(id));
+    }
+
+    static class TestCoalescer extends MutationCoalescer<String> {
+        final AtomicInteger coalesced = new AtomicInteger();
+
+        TestCoalescer(ProducerConfig config, List<Integer> dispatched) {
+            super(config, (mutation, size, hash) -> dispatched.add(mutation.getCommitLogPosition().position));
+        }
+
+        @Override
+        protected void onCoalesced(Mutation<String> mutation) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testCoalesceSameKey() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.coalesceWindowMs = 60000L;
+        List<Integer> dispatched = new CopyOnWriteArrayList<>();
+        try (TestCoalescer coalescer = new TestCoalescer(config, dispatched)) {
+            coalescer.add(mutation(10, "a"), 1, 0);
+            coalescer.add(mutation(20, "b"), 1, 0);
+            coalescer.add(mutation(30, "a"), 1, 0);
+            assertEquals(2, coalescer.size());
+            assertEquals(0, dispatched.size());
+
+            // the last mutation of each key is dispatched in commit log order
+            coalescer.flush();
+            assertEquals(Arrays.asList(20, 30), dispatched);
+            assertEquals(1, coalescer.coalesced.get());
+            assertEquals(0, coalescer.size());
+        }
+    }
+
+    @Test
+    public void testRangeDeletionNotCoalesced() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.coalesceWindowMs = 60000L;
+        List<Integer> dispatched = new CopyOnWriteArrayList<>();
+        try (TestCoalescer coalescer = new TestCoalescer(config, dispatched)) {
+            for (int position : new int[] {10, 20}) {
+                Mutation<String> mutation = mutation(position, "a");
+                mutation.getRowData().setClusteringRange(
+                        new ClusteringRange(Collections.emptyList(), true, Collections.emptyList(), true));
+                coalescer.add(mutation, 1, 0);
+            }
+            coalescer.flush();
+            assertEquals(Arrays.asList(10, 20), dispatched);
+            assertEquals(0, coalescer.coalesced.get());
+        }
+    }
+
+    @Test
+    public void testFlushOnSizeAndWindow() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.coalesceWindowMs = 100L;
+        config.coalesceMaxMutations = 2;
+        List<Integer> dispatched = new CopyOnWriteArrayList<>();
+        try (TestCoalescer coalescer = new TestCoalescer(config, dispatched)) {
+            coalescer.add(mutation(10, "a"), 1, 0);
+            coalescer.add(mutation(20, "b"), 1, 0);
+            assertEquals(Arrays.asList(10, 20), dispatched);
+
+            coalescer.add(mutation(30, "c"), 1, 0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (dispatched.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(dispatched.contains(30), "window not flushed");
+            assertEquals(0, coalescer.size());
+        }
+    }
+
+    @Test
+    public void testFailedFlushKeepsPendingMutations() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.coalesceWindowMs = 60000L;
+        List<Integer> dispatched = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger(1);
+        try (MutationCoalescer<String> coalescer = new MutationCoalescer<>(config, (mutation, size, hash) -> {
+            if (mutation.getCommitLogPosition().position == 20 && failures.getAndDecrement() > 0) {
+                throw new InterruptedException();
+            }
+            dispatched.add(mutation.getCommitLogPosition().position);
+        })) {
+            coalescer.add(mutation(10, "a"), 1, 0);
+            coalescer.add(mutation(20, "b"), 1, 0);
+            coalescer.add(mutation(30, "c"), 1, 0);
+            assertThrows(InterruptedException.class, coalescer::flush);
+            assertEquals(Collections.singletonList(10), dispatched);
+            assertEquals(2, coalescer.size());
+
+            coalescer.flush();
+            assertEquals(Arrays.asList(10, 20, 30), dispatched);
+            assertEquals(0, coalescer.size());
+        }
+    }
+}
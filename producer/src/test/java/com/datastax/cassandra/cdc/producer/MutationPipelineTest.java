@@ -0,0 +1,151 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MutationPipelineTest {
+
+    static class MemoryOffsetWriter implements OffsetWriter {
+        volatile CommitLogPosition position = new CommitLogPosition(0, 0);
+
+        @Override
+        public void markOffset(Mutation<?> mutation) {
+            position = mutation.getCommitLogPosition();
+        }
+
+        @Override
+        public CommitLogPosition offset(Optional<UUID> nodeId) {
+            return position;
+        }
+
+        @Override
+        public void flush(Optional<UUID> nodeId) {
+        }
+    }
+
+    static class PendingMutationSender implements MutationSender<String> {
+        final Map<Integer, CompletableFuture<Void>> futures = new ConcurrentHashMap<>();
+        final List<Integer> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> sendMutationAsync(Mutation<String> mutation) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            futures.put(mutation.getCommitLogPosition().position, future);
+            sent.add(mutation.getCommitLogPosition().position);
+            return future;
+        }
+
+        CompletableFuture<Void> await(int position) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!futures.containsKey(position) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(futures.containsKey(position), "mutation " + position + " not sent");
+            return futures.get(position);
+        }
+    }
+
+    @Test
+    public void testContiguousOffset() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.sendLanes = 2;
+        config.maxInflightMessages = 10;
+        MemoryOffsetWriter offsetWriter = new MemoryOffsetWriter();
+        PendingMutationSender sender = new PendingMutationSender();
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, offsetWriter)) {
+            pipeline.send(mutation(1, 10), 100, 0);
+            pipeline.send(mutation(1, 20), 100, 1);
+            pipeline.send(mutation(1, 30), 100, 1);
+            sender.await(10);
+            sender.await(20);
+            sender.await(30);
+            assertEquals(3, pipeline.pendingMessages());
+            assertEquals(3, pipeline.inflightMessages());
+            assertEquals(300L, pipeline.inflightBytes());
+
+            // acknowledgements of the second lane do not advance the offset beyond the first lane
+            sender.await(30).complete(null);
+            sender.await(20).complete(null);
+            assertEquals(0, offsetWriter.offset().position);
+
+            sender.await(10).complete(null);
+            pipeline.drain();
+            assertEquals(30, offsetWriter.offset().position);
+            assertEquals(0, pipeline.inflightMessages());
+        }
+    }
+
+    @Test
+    public void testWindowLimit() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.sendLanes = 1;
+        config.maxInflightMessages = 2;
+        MemoryOffsetWriter offsetWriter = new MemoryOffsetWriter();
+        PendingMutationSender sender = new PendingMutationSender();
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, offsetWriter)) {
+            pipeline.send(mutation(1, 10), 1, 0);
+            pipeline.send(mutation(1, 20), 1, 0);
+            pipeline.send(mutation(1, 30), 1, 0);
+            sender.await(20);
+            Thread.sleep(200);
+            // the third send is blocked by the window
+            assertEquals(Arrays.asList(10, 20), sender.sent);
+
+            sender.await(10).complete(null);
+            sender.await(30);
+            assertEquals(Arrays.asList(10, 20, 30), sender.sent);
+            assertEquals(10, offsetWriter.offset().position);
+        }
+    }
+
+    @Test
+    public void testRetryInOrder() throws Exception {
+        ProducerConfig config = new ProducerConfig();
+        config.sendLanes = 1;
+        config.sendRetryInitialBackoffMs = 10;
+        MemoryOffsetWriter offsetWriter = new MemoryOffsetWriter();
+        PendingMutationSender sender = new PendingMutationSender();
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, offsetWriter)) {
+            pipeline.send(mutation(1, 10), 1, 0);
+            pipeline.send(mutation(1, 20), 1, 0);
+            CompletableFuture<Void> first = sender.await(10);
+            sender.await(20).complete(null);
+            sender.futures.clear();
+            first.completeExceptionally(new RuntimeException("broker unavailable"));
+
+            // all in-flight mutations of the lane are re-sent in order
+            sender.await(10).complete(null);
+            sender.await(20).complete(null);
+            pipeline.drain();
+            assertEquals(Arrays.asList(10, 20, 10, 20), sender.sent);
+            assertEquals(20, offsetWriter.offset().position);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.ClusteringRange;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.datastax.cassandra.cdc.producer.MutationPipelineTest.MemoryOffsetWriter;
+import static com.datastax.cassandra.cdc.producer.MutationPipelineTest.PendingMutationSender;
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MutationSpillTest {
+
+    static ProducerConfig config() throws IOException {
+        ProducerConfig config = new ProducerConfig();
+        config.sendLanes = 1;
+        config.spillDir = Files.createTempDirectory("cdc_spill").toString();
+        config.spillSegmentSize = 256;
+        config.spillMaxSize = 1024 * 1024;
+        return config;
+    }
+
+    static int segmentFiles(ProducerConfig config) {
+        return new File(config.spillDir).list().length;
+    }
+
+    static void await(PendingMutationSender sender, int... positions) throws InterruptedException {
+        for (int position : positions) {
+            sender.await(position).complete(null);
+        }
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        ProducerConfig config = config();
+        PendingMutationSender sender = new PendingMutationSender();
+        MutationSpill<String> spill = new MutationSpill<>(config, (ks, table) -> table);
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, spill.offsetWriter())) {
+            spill.start(pipeline);
+            for (int i = 1; i <= 10; i++) {
+                spill.append(mutation(1, i * 10), 1, 0);
+            }
+            // small segments are rotated
+            assertTrue(spill.segmentCount() > 1);
+
+            await(sender, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100);
+            pipeline.drain();
+            assertEquals(Arrays.asList(10, 20, 30, 40, 50, 60, 70, 80, 90, 100), sender.sent);
+            assertEquals(100, spill.offsetWriter().offset().position);
+
+            // acknowledged sealed segments are deleted, the current segment is kept
+            assertEquals(1, spill.segmentCount());
+            assertEquals(1, segmentFiles(config));
+        } finally {
+            spill.close();
+        }
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        ProducerConfig config = config();
+        try (MutationSpill<String> spill = new MutationSpill<>(config, (ks, table) -> table)) {
+            for (int i = 1; i <= 5; i++) {
+                spill.append(mutation(1, i * 10), 1, 0);
+            }
+        }
+
+        // unacknowledged mutations are re-sent after a restart
+        PendingMutationSender sender = new PendingMutationSender();
+        MutationSpill<String> spill = new MutationSpill<>(config, (ks, table) -> table);
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, spill.offsetWriter())) {
+            spill.start(pipeline);
+            spill.append(mutation(1, 60), 1, 0);
+            await(sender, 10, 20, 30, 40, 50, 60);
+            pipeline.drain();
+            assertEquals(Arrays.asList(10, 20, 30, 40, 50, 60), sender.sent);
+            assertEquals(1, spill.segmentCount());
+        } finally {
+            spill.close();
+        }
+    }
+
+    @Test
+    public void testOffsetMarkedOnSync() throws Exception {
+        ProducerConfig config = config();
+        config.spillSegmentSize = 1024 * 1024;
+        MemoryOffsetWriter commitLogOffsetWriter = new MemoryOffsetWriter();
+        try (MutationSpill<String> spill = new MutationSpill<>(config, (ks, table) -> table, commitLogOffsetWriter)) {
+            spill.append(mutation(1, 10), 1, 0);
+            spill.append(mutation(1, 20), 1, 0);
+            // not durable yet
+            assertEquals(0, commitLogOffsetWriter.offset().position);
+
+            spill.sync();
+            assertEquals(20, commitLogOffsetWriter.offset().position);
+            spill.append(mutation(1, 30), 1, 0);
+            assertEquals(20, commitLogOffsetWriter.offset().position);
+        }
+        // synced on close
+        assertEquals(30, commitLogOffsetWriter.offset().position);
+    }
+
+    @Test
+    public void testUnresolvedTable() throws Exception {
+        ProducerConfig config = config();
+        MemoryOffsetWriter offsetWriter = new MemoryOffsetWriter();
+        PendingMutationSender sender = new PendingMutationSender();
+        MutationSpill<String> spill = new MutationSpill<>(config, (ks, table) -> null);
+        try (MutationPipeline<String> pipeline = new MutationPipeline<>(config, sender, offsetWriter)) {
+            spill.start(pipeline);
+            spill.append(mutation(1, 10), 1, 0);
+            Thread.sleep(200);
+            // mutations of dropped tables are skipped
+            assertEquals(Collections.emptyList(), sender.sent);
+        } finally {
+            spill.close();
+        }
+    }
+
+    @Test
+    public void testCodec() throws Exception {
+        Mutation<String> mutation = mutation(1, 10);
+        UUID uuid = UUID.randomUUID();
+        mutation.getRowData().addCell(new CellData("id", uuid, null, CellData.ColumnType.PARTITION));
+        mutation.getRowData().addCell(new CellData("a", new BigDecimal("12.345"), null, CellData.ColumnType.REGULAR));
+        mutation.getRowData().addCell(new CellData("b", ByteBuffer.wrap(new byte[] {1, 2, 3}), 42L, CellData.ColumnType.REGULAR));
+        mutation.getRowData().addCell(new CellData("c", Arrays.asList("x", "y"), null, CellData.ColumnType.REGULAR));
+        mutation.getRowData().addCell(new CellData("d", null, null, CellData.ColumnType.REGULAR));
+        mutation.getRowData().addCell(new CellData("e", new LinkedHashSet<>(Arrays.asList(3, 1, 2)), null, CellData.ColumnType.CLUSTERING));
+        Map<String, List<Long>> map = new LinkedHashMap<>();
+        map.put("k", Arrays.asList(1L, 2L));
+        mutation.getRowData().addCell(new CellData("f", map, null, CellData.ColumnType.CLUSTERING));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        MutationCodec.serialize(mutation, new DataOutputStream(baos));
+        Mutation<String> decoded = MutationCodec.deserialize(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())), (ks, table) -> ks + "." + table);
+
+        assertEquals(mutation.getCommitLogPosition(), decoded.getCommitLogPosition());
+        assertEquals(mutation.getSource(), decoded.getSource());
+        assertEquals(mutation.getMd5Digest(), decoded.getMd5Digest());
+        assertEquals(mutation.getTsMicros(), decoded.getTsMicros());
+        assertEquals("ks.table", decoded.getMetadata());
+        List<CellData> cells = decoded.getRowData().cells();
+        assertEquals(7, cells.size());
+        assertEquals(uuid, cells.get(0).value);
+        assertEquals(new BigDecimal("12.345"), cells.get(1).value);
+        assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3}), cells.get(2).value);
+        assertEquals(42L, cells.get(2).deletionTs);
+        assertEquals(Arrays.asList("x", "y"), cells.get(3).value);
+        assertNull(cells.get(4).value);
+        assertEquals(Arrays.asList(3, 1, 2), new ArrayList<>((Set<?>) cells.get(5).value));
+        assertEquals(map, cells.get(6).value);
+        assertNull(decoded.getRowData().getClusteringRange());
+        assertNull(MutationCodec.deserialize(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())), (ks, table) -> null));
+    }
+
+    @Test
+    public void testUnsupportedFormatVersion() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        MutationCodec.serialize(mutation(1, 10), new DataOutputStream(baos));
+        byte[] record = baos.toByteArray();
+        record[0] = MutationCodec.FORMAT_VERSION + 1;
+        assertThrows(IOException.class, () -> MutationCodec.deserialize(new DataInputStream(new ByteArrayInputStream(record)), (ks, table) -> ks + "." + table));
+    }
+
+    @Test
+    public void testUnsupportedValue() {
+        Mutation<String> mutation = mutation(1, 10);
+        mutation.getRowData().addCell(new CellData("id", LocalDate.now(), null, CellData.ColumnType.PARTITION));
+        assertThrows(NotSerializableException.class, () -> MutationCodec.serialize(mutation, new DataOutputStream(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    public void testRangeDeletionCodec() throws Exception {
+        Mutation<String> mutation = mutation(1, 10);
+        mutation.getRowData().addCell(new CellData("ck", null, null, CellData.ColumnType.CLUSTERING));
+        mutation.getRowData().setClusteringRange(new ClusteringRange(
+                Collections.singletonList(ByteBuffer.wrap(new byte[] {0, 0, 0, 1})), false,
+                Collections.emptyList(), true));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        MutationCodec.serialize(mutation, new DataOutputStream(baos));
+        Mutation<String> decoded = MutationCodec.deserialize(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())), (ks, table) -> ks + "." + table);
+        assertEquals(mutation.getRowData().getClusteringRange(), decoded.getRowData().getClusteringRange());
+        assertNull(decoded.getRowData().cells().get(0).value);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import com.datastax.cassandra.cdc.ClusteringRange;
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.cassandra.cdc.DigestVersion;
+import com.datastax.cassandra.cdc.MutationValue;
+import com.datastax.cassandra.cdc.RowImage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MutationValueTest {
+
+    static final String DIGEST = DigestVersion.MURMUR3_128.format(0x0123456789abcdefL, 0xfedcba9876543210L);
+
+    static Mutation<String> mutation(String... columns) {
+        RowData rowData = TestMutations.partitionKey(1);
+        for (String column : columns) {
+            rowData.addCell(new CellData(column, ByteBuffer.wrap(column.getBytes()), null, CellData.ColumnType.REGULAR));
+        }
+        return TestMutations.mutation(1, 10, rowData, DIGEST);
+    }
+
+    @Test
+    public void testCompactValue() {
+        ColumnIndex columnIndex = new ColumnIndex(Arrays.asList("c", "a", "b"));
+        MutationValue value = mutation("c", "a").mutationValue(columnIndex);
+        assertNull(value.getMd5Digest());
+        assertNull(value.getColumns());
+        assertEquals(columnIndex.version(), value.getColumnsVersion().intValue());
+        assertArrayEquals(new String[] {"a", "c"}, columnIndex.columns(value.getColumnsBitmap()));
+        assertArrayEquals(new String[] {"a", "c"}, columnIndex.columns(value.getColumnsVersion(), value.getColumnsBitmap()));
+        // encoded with another table schema
+        assertNull(new ColumnIndex(Arrays.asList("c", "a", "b", "d")).columns(value.getColumnsVersion(), value.getColumnsBitmap()));
+        assertEquals(DIGEST, DigestVersion.MURMUR3_128.format(value.getDigest()));
+    }
+
+    @Test
+    public void testColumnsVersion() {
+        assertEquals(new ColumnIndex(Arrays.asList("a", "b")).version(), new ColumnIndex(Arrays.asList("b", "a")).version());
+        assertNotEquals(new ColumnIndex(Arrays.asList("a", "b")).version(), new ColumnIndex(Arrays.asList("a", "b", "c")).version());
+        assertNotEquals(new ColumnIndex(Arrays.asList("ab", "c")).version(), new ColumnIndex(Arrays.asList("a", "bc")).version());
+        // same Arrays.hashCode
+        assertNotEquals(new ColumnIndex(Arrays.asList("Aa", "c")).version(), new ColumnIndex(Arrays.asList("BB", "c")).version());
+    }
+
+    @Test
+    public void testUnknownColumn() {
+        ColumnIndex columnIndex = new ColumnIndex(Arrays.asList("a", "b"));
+        MutationValue value = mutation("a", "d").mutationValue(columnIndex);
+        assertArrayEquals(new String[] {"a", "d"}, value.getColumns());
+        assertNull(value.getColumnsVersion());
+        assertNull(value.getColumnsBitmap());
+        assertEquals(DIGEST, DigestVersion.MURMUR3_128.format(value.getDigest()));
+    }
+
+    @Test
+    public void testLegacyValue() {
+        MutationValue value = mutation("a").mutationValue(null);
+        assertEquals(DIGEST, value.getMd5Digest());
+        assertArrayEquals(new String[] {"a"}, value.getColumns());
+        assertNull(value.getDigest());
+    }
+
+    @Test
+    public void testRowImage() {
+        Mutation<String> mutation = mutation("a", "b");
+        mutation.getRowData().addCell(new CellData("c", null, null, CellData.ColumnType.REGULAR));
+        Map<String, ByteBuffer> values = RowImage.decode(mutation.mutationValue(null).getRowImage());
+        assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(values.keySet().toArray()));
+        assertEquals(ByteBuffer.wrap("b".getBytes()), values.get("b"));
+        // deleted column
+        assertTrue(values.containsKey("c"));
+        assertNull(values.get("c"));
+
+        // no row image without regular columns
+        assertNull(mutation().mutationValue(null).getRowImage());
+    }
+
+    @Test
+    public void testClusteringRange() {
+        Mutation<String> mutation = mutation();
+        mutation.getRowData().addCell(new CellData("ck1", null, null, CellData.ColumnType.CLUSTERING));
+        mutation.getRowData().addCell(new CellData("ck2", null, null, CellData.ColumnType.CLUSTERING));
+        ClusteringRange range = new ClusteringRange(
+                Arrays.asList(ByteBuffer.wrap(new byte[] {0, 0, 0, 1}), ByteBuffer.wrap("a".getBytes())), true,
+                Collections.singletonList(ByteBuffer.wrap(new byte[] {0, 0, 0, 2})), false);
+        mutation.getRowData().setClusteringRange(range);
+
+        MutationValue value = mutation.mutationValue(new ColumnIndex(Arrays.asList("a", "b")));
+        ClusteringRange decoded = ClusteringRange.decode(value.getClusteringRange());
+        assertEquals(range, decoded);
+        assertTrue(decoded.isStartInclusive());
+        assertFalse(decoded.isEndInclusive());
+        assertNull(value.getRowImage());
+
+        // unbounded range of a partition deletion
+        ClusteringRange all = new ClusteringRange(Collections.emptyList(), true, Collections.emptyList(), true);
+        assertEquals(all, ClusteringRange.decode(all.encode()));
+        assertNull(mutation("a").mutationValue(null).getClusteringRange());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class OffsetFileWriterTest {
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        try (OffsetFileWriter writer = new OffsetFileWriter(dir.toString())) {
+            writer.markOffset(mutation(5, 1000));
+            writer.markCheckpoint(new CommitLogPosition(5, 800));
+            writer.flush(Optional.empty());
+        }
+        try (OffsetFileWriter writer = new OffsetFileWriter(dir.toString())) {
+            assertEquals(new CommitLogPosition(5, 1000), writer.offset());
+            assertEquals(new CommitLogPosition(5, 800), writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testOffsetWithoutCheckpoint() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        File offsetFile = new File(dir.toFile(), OffsetFileWriter.COMMITLOG_OFFSET_FILE);
+        Files.write(offsetFile.toPath(), OffsetFileWriter.serializePosition(new CommitLogPosition(3, 42)).getBytes(StandardCharsets.UTF_8));
+        try (OffsetFileWriter writer = new OffsetFileWriter(dir.toString())) {
+            assertEquals(new CommitLogPosition(3, 42), writer.offset());
+            assertNull(writer.checkpoint());
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        Path dir = Files.createTempDirectory("offset");
+        File offsetFile = new File(dir.toFile(), OffsetFileWriter.COMMITLOG_OFFSET_FILE);
+        ProducerConfig config = new ProducerConfig();
+        config.offsetFlushIntervalMs = 200L;
+        config.offsetFlushMaxMutations = 1000L;
+        try (OffsetFileWriter writer = new OffsetFileWriter(config, dir.toString())) {
+            for (int i = 1; i <= 100; i++) {
+                writer.markOffset(mutation(1, i));
+            }
+            // not flushed by the acknowledgements
+            assertEquals("0:0", read(offsetFile));
+
+            // flushed by the background thread within the interval
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"1:100".equals(read(offsetFile)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("1:100", read(offsetFile));
+            assertFalse(new File(dir.toFile(), OffsetFileWriter.COMMITLOG_OFFSET_FILE + ".tmp").exists());
+        }
+    }
+
+    static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).replace(File.pathSeparatorChar, ':');
+    }
+}
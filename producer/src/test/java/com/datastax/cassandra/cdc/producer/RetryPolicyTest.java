@@ -0,0 +1,69 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testExponentialBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy(100, 10000);
+        for (int i = 0; i < 100; i++) {
+            long backoff = retryPolicy.backoffMs(1);
+            assertTrue(backoff >= 50 && backoff <= 100, "backoff=" + backoff);
+            backoff = retryPolicy.backoffMs(4);
+            assertTrue(backoff >= 400 && backoff <= 800, "backoff=" + backoff);
+            backoff = retryPolicy.backoffMs(100);
+            assertTrue(backoff >= 5000 && backoff <= 10000, "backoff=" + backoff);
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3);
+        assertFalse(circuitBreaker.recordFailure());
+        assertFalse(circuitBreaker.recordFailure());
+        assertFalse(circuitBreaker.recordSuccess());
+        assertFalse(circuitBreaker.isOpen());
+
+        assertFalse(circuitBreaker.recordFailure());
+        assertFalse(circuitBreaker.recordFailure());
+        assertTrue(circuitBreaker.recordFailure());
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.recordFailure());
+
+        Thread thread = new Thread(() -> {
+            try {
+                circuitBreaker.awaitClosed();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        thread.join(100);
+        assertTrue(thread.isAlive());
+
+        assertTrue(circuitBreaker.recordSuccess());
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertEquals(false, circuitBreaker.isOpen());
+    }
+}
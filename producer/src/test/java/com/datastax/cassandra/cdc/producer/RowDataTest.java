@@ -0,0 +1,72 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowDataTest {
+
+    static final ColumnLayout LAYOUT = new ColumnLayout(new String[] {"pk"}, new String[] {"ck"}, new String[] {"a", "b"});
+
+    @Test
+    public void testLayoutOrder() {
+        RowData rowData = new RowData(LAYOUT);
+        rowData.addCell(new CellData("b", 2, null, CellData.ColumnType.REGULAR));
+        rowData.setCell(LAYOUT.clusteringOrdinal(0), new CellData("ck", 1, null, CellData.ColumnType.CLUSTERING));
+        rowData.setCell(LAYOUT.partitionKeyOrdinal(0), new CellData("pk", 0, null, CellData.ColumnType.PARTITION));
+
+        // cells are ordered by column ordinal, whatever the insertion order
+        assertArrayEquals(new String[] {"pk", "ck"}, rowData.primaryKeyNames());
+        assertArrayEquals(new Object[] {0, 1}, rowData.primaryKeyValues());
+        assertArrayEquals(new String[] {"b"}, rowData.nonPrimaryKeyNames());
+        assertEquals("{pk=0, ck=1, b=2}", rowData.toString());
+        assertTrue(rowData.hasCell("b"));
+        assertFalse(rowData.hasCell("a"));
+    }
+
+    @Test
+    public void testUnknownColumn() {
+        RowData rowData = new RowData(LAYOUT);
+        rowData.addCell(new CellData("pk", 0, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("c", 3, null, CellData.ColumnType.REGULAR));
+        rowData.addCell(new CellData("a", 1, null, CellData.ColumnType.REGULAR));
+        assertArrayEquals(new String[] {"a", "c"}, rowData.nonPrimaryKeyNames());
+
+        rowData.removeCell("c");
+        assertFalse(rowData.hasCell("c"));
+        assertArrayEquals(new String[] {"a"}, rowData.nonPrimaryKeyNames());
+        assertEquals(rowData, rowData.copy());
+    }
+
+    @Test
+    public void testCachedArrays() {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("pk", 0, null, CellData.ColumnType.PARTITION));
+        rowData.addCell(new CellData("a", 1, null, CellData.ColumnType.REGULAR));
+        assertSame(rowData.nonPrimaryKeyNames(), rowData.nonPrimaryKeyNames());
+        assertSame(rowData.primaryKeyCells(), rowData.primaryKeyCells());
+
+        // modifying the row invalidates the cached arrays
+        rowData.addCell(new CellData("b", 2, null, CellData.ColumnType.REGULAR));
+        assertArrayEquals(new String[] {"a", "b"}, rowData.nonPrimaryKeyNames());
+    }
+}
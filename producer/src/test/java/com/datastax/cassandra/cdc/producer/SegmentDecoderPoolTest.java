@@ -0,0 +1,191 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.datastax.cassandra.cdc.producer.TestMutations.mutation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentDecoderPoolTest {
+
+    static ProducerConfig config(int threads) {
+        ProducerConfig config = new ProducerConfig();
+        config.segmentDecoderThreads = threads;
+        return config;
+    }
+
+    @Test
+    public void testBoundedBuffer() throws Exception {
+        ProducerConfig config = config(2);
+        config.segmentDecoderMaxBufferedBytes = 100;
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config)) {
+            AtomicInteger decoded = new AtomicInteger();
+            pool.submit(new File("CommitLog-6-1.log"), f -> {
+                for (int position = 1; position <= 50; position++) {
+                    assertTrue(pool.buffer(mutation(1, position), 40, 0));
+                    decoded.incrementAndGet();
+                }
+            });
+            // the decoder waits once 2 mutations are buffered
+            Thread.sleep(200);
+            assertEquals(2, decoded.get());
+
+            List<Integer> dispatched = new ArrayList<>();
+            pool.dispatchNext((mutation, size, hash) -> {
+                assertTrue(decoded.get() - dispatched.size() <= 3, "decoded=" + decoded.get() + " dispatched=" + dispatched.size());
+                dispatched.add(mutation.getCommitLogPosition().position);
+            });
+            assertEquals(50, dispatched.size());
+            assertEquals(Integer.valueOf(50), dispatched.get(49));
+        }
+    }
+
+    @Test
+    public void testCancelWaitingDecoder() throws Exception {
+        ProducerConfig config = config(2);
+        config.segmentDecoderMaxBufferedBytes = 1;
+        ForkJoinPool sectionExecutor = new ForkJoinPool(1);
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config)) {
+            CountDownLatch stopped = new CountDownLatch(1);
+            SegmentDecoderPool.Decoded<String> section = pool.decode(sectionExecutor, () -> {
+                try {
+                    for (int position = 1; position <= 10; position++) {
+                        assertTrue(pool.buffer(mutation(1, position), 1, 0));
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            });
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> pool.dispatch(section, (mutation, size, hash) -> {
+                throw new IllegalStateException("dispatch failed");
+            }));
+            assertEquals("dispatch failed", e.getMessage());
+            // the waiting decoder is released, a fork join task is not interrupted
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        } finally {
+            sectionExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config(1))) {
+            assertFalse(pool.isEnabled());
+            assertFalse(pool.buffer(mutation(1, 10), 1, 0));
+        }
+    }
+
+    @Test
+    public void testDispatchInSegmentOrder() throws Exception {
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config(3))) {
+            assertTrue(pool.isEnabled());
+            for (long segment = 1; segment <= 3; segment++) {
+                final long seg = segment;
+                pool.submit(new File("CommitLog-6-" + seg + ".log"), f -> {
+                    // the first segments are the slowest to decode
+                    Thread.sleep(100 * (4 - seg));
+                    for (int position = 10; position <= 30; position += 10) {
+                        assertTrue(pool.buffer(mutation(seg, position), 1, 0));
+                    }
+                });
+            }
+            assertTrue(pool.isFull());
+            assertTrue(pool.contains(new File("CommitLog-6-2.log")));
+
+            List<String> dispatched = new ArrayList<>();
+            while (!pool.isEmpty()) {
+                pool.dispatchNext((mutation, size, hash) -> dispatched.add(mutation.getCommitLogPosition().toString()));
+            }
+            assertEquals(9, dispatched.size());
+            List<String> expected = new ArrayList<>();
+            for (long segment = 1; segment <= 3; segment++) {
+                for (int position = 10; position <= 30; position += 10) {
+                    expected.add(new CommitLogPosition(segment, position).toString());
+                }
+            }
+            assertEquals(expected, dispatched);
+        }
+    }
+
+    @Test
+    public void testDecodingFailure() throws Exception {
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config(2))) {
+            pool.submit(new File("CommitLog-6-1.log"), f -> {
+                throw new IOException("corrupted");
+            });
+            pool.submit(new File("CommitLog-6-2.log"), f -> pool.buffer(mutation(2, 10), 1, 0));
+
+            List<Mutation<String>> dispatched = new ArrayList<>();
+            assertEquals("CommitLog-6-1.log", pool.peek().getName());
+            IOException e = assertThrows(IOException.class, () -> pool.dispatchNext((mutation, size, hash) -> dispatched.add(mutation)));
+            assertEquals("corrupted", e.getMessage());
+            assertTrue(dispatched.isEmpty());
+
+            // the next segment is still dispatched
+            assertEquals("CommitLog-6-2.log", pool.peek().getName());
+            pool.dispatchNext((mutation, size, hash) -> dispatched.add(mutation));
+            assertEquals(1, dispatched.size());
+            assertEquals(new CommitLogPosition(2, 10), dispatched.get(0).getCommitLogPosition());
+            assertTrue(pool.isEmpty());
+        }
+    }
+
+    @Test
+    public void testDecodeSectionsInSegment() throws Exception {
+        ExecutorService sectionExecutor = Executors.newFixedThreadPool(3);
+        try (SegmentDecoderPool<String> pool = new SegmentDecoderPool<>(config(2))) {
+            pool.submit(new File("CommitLog-6-1.log"), f -> {
+                List<SegmentDecoderPool.Decoded<String>> sections = new ArrayList<>();
+                for (int section = 0; section < 3; section++) {
+                    final int start = section * 100;
+                    sections.add(pool.decode(sectionExecutor, () -> {
+                        // the last sections are the fastest to decode
+                        Thread.sleep(start == 0 ? 200 : 0);
+                        for (int position = start + 10; position <= start + 30; position += 10) {
+                            assertTrue(pool.buffer(mutation(1, position), 1, 0));
+                        }
+                    }));
+                }
+                // re-sequence the sections into the segment mutations
+                for (SegmentDecoderPool.Decoded<String> section : sections) {
+                    pool.dispatch(section, (mutation, size, hash) -> assertTrue(pool.buffer(mutation, size, hash)));
+                }
+            });
+
+            List<Integer> dispatched = new ArrayList<>();
+            pool.dispatchNext((mutation, size, hash) -> dispatched.add(mutation.getCommitLogPosition().position));
+            assertEquals(Arrays.asList(10, 20, 30, 110, 120, 130, 210, 220, 230), dispatched);
+        } finally {
+            sectionExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentQueueTest {
+
+    static File commitLog(long segmentId) {
+        return new File("CommitLog-7-" + segmentId + ".log");
+    }
+
+    @Test
+    public void testAbsorbQueuedSegment() {
+        SegmentQueue queue = new SegmentQueue();
+        assertTrue(queue.add(commitLog(2)));
+        assertTrue(queue.add(commitLog(1)));
+        assertFalse(queue.add(commitLog(2)));
+        assertFalse(queue.add(commitLog(2)));
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.absorbedSubmissions());
+
+        // segment order
+        assertEquals(commitLog(1), queue.poll());
+        assertEquals(commitLog(2), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testCoalesceDuringRead() throws Exception {
+        SegmentQueue queue = new SegmentQueue();
+        queue.add(commitLog(1));
+        File file = queue.take();
+
+        // the updates received while the segment is read are coalesced into one re-read
+        assertTrue(queue.add(commitLog(1)));
+        assertFalse(queue.add(commitLog(1)));
+        assertEquals(1, queue.size());
+        assertEquals(file, queue.take());
+        assertEquals(1, queue.absorbedSubmissions());
+    }
+
+    @Test
+    public void testTakeWaitsForSubmission() throws Exception {
+        SegmentQueue queue = new SegmentQueue();
+        CompletableFuture<File> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(taken.isDone());
+        queue.add(commitLog(3));
+        assertEquals(commitLog(3), taken.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TableFilterTest {
+
+    @Test
+    public void testNoFilter() {
+        TableFilter<UUID> filter = new TableFilter<>(new ProducerConfig());
+        assertTrue(filter.accept(UUID.randomUUID(), "ks1", "table1"));
+    }
+
+    @Test
+    public void testIncludeExclude() {
+        TableFilter<UUID> filter = new TableFilter<>("ks1\\..*|ks2\\.table1", "ks1\\.audit_.*");
+        assertTrue(filter.accept(UUID.randomUUID(), "ks1", "table1"));
+        assertTrue(filter.accept(UUID.randomUUID(), "ks2", "table1"));
+        assertFalse(filter.accept(UUID.randomUUID(), "ks2", "table2"));
+        assertFalse(filter.accept(UUID.randomUUID(), "ks1", "audit_log"));
+    }
+
+    @Test
+    public void testDecisionPerTableId() {
+        TableFilter<UUID> filter = new TableFilter<>("", "ks1\\.table1");
+        UUID tableId = UUID.randomUUID();
+        assertFalse(filter.accept(tableId, "ks1", "table1"));
+        // the decision is cached by table id
+        assertFalse(filter.accept(tableId, "ks1", "table2"));
+        assertTrue(filter.accept(UUID.randomUUID(), "ks1", "table2"));
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.cassandra.cdc.producer;
+
+import java.util.UUID;
+
+/**
+ * Mutations of the ks.table test table.
+ */
+public class TestMutations {
+
+    static Mutation<String> mutation(long segment, int position) {
+        return mutation(segment, position, new RowData());
+    }
+
+    static Mutation<String> mutation(long segment, int position, RowData rowData) {
+        return mutation(segment, position, rowData, "digest");
+    }
+
+    static Mutation<String> mutation(long segment, int position, RowData rowData, String digest) {
+        SourceInfo source = new SourceInfo("cluster", UUID.randomUUID(), "ks", "table");
+        return new Mutation<>(new CommitLogPosition(segment, position), source, rowData, true, 0L, digest, "table");
+    }
+
+    /**
+     * @return the row data of the id partition key.
+     */
+    static RowData partitionKey(Object id) {
+        RowData rowData = new RowData();
+        rowData.addCell(new CellData("id", id, null, CellData.ColumnType.PARTITION));
+        return rowData;
+    }
+}
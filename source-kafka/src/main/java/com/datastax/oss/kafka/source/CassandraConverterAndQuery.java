@@ -15,16 +15,28 @@
  */
 package com.datastax.oss.kafka.source;
 
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @EqualsAndHashCode
 @ToString
 public class CassandraConverterAndQuery {
     final CassandraConverter converter;
+    // converter of the primary key columns of the rows read from a clustering range
+    final CassandraConverter primaryKeyConverter;
     final String query;
+    final TableMetadata tableMetadata;
+    // the selected columns
+    final List<ColumnMetadata> columns;
+    // index of the non primary key columns, to decode the columns bitmap of the mutation values
+    final ColumnIndex columnIndex;
 }
@@ -15,6 +15,10 @@
  */
 package com.datastax.oss.kafka.source;
 
+import com.datastax.cassandra.cdc.ClusteringRange;
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.cassandra.cdc.DigestVersion;
+import com.datastax.cassandra.cdc.RowImage;
 import com.datastax.oss.cdc.CassandraClient;
 import com.datastax.oss.cdc.CassandraSourceConnectorConfig;
 import com.datastax.oss.cdc.MutationCache;
@@ -36,15 +40,18 @@ import io.vavr.Tuple3;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
 import org.apache.kafka.connect.json.JsonConverterConfig;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.apache.kafka.connect.storage.Converter;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 import java.nio.channels.Selector;
 import java.time.Duration;
 import java.util.*;
@@ -56,6 +63,11 @@ public class CassandraSourceTask extends SourceTask implements SchemaChangeListe
 
     public static final String DEFAULT_CONSUMER_GROUP_ID_PREFIX = "consumer-group-";
 
+    /**
+     * Record header holding the CQL condition on the clustering columns of a range deletion, empty for a partition deletion.
+     */
+    public static final String CLUSTERING_RANGE_HEADER = "clusteringRange";
+
     CassandraSourceConnectorConfig config;
 
     String eventsTopic;
@@ -205,7 +217,11 @@ public class CassandraSourceTask extends SourceTask implements SchemaChangeListe
                     columns.stream().map(c -> c.getName().asInternal()).collect(Collectors.toList()));
             this.cassandraConverterAndQuery = new CassandraConverterAndQuery(
                     new CassandraConverter(ksm, tableMetadata, columns),
-                    cassandraClient.buildSelect(tableMetadata, columns));
+                    new CassandraConverter(ksm, tableMetadata, tableMetadata.getPrimaryKey()),
+                    cassandraClient.buildSelect(tableMetadata, columns),
+                    tableMetadata,
+                    columns,
+                    buildColumnIndex(tableMetadata));
             // Invalidate the prepare statement if the query has changed.
             // We cannot build the statement here form a C* driver thread (can cause dead lock)
             if (cassandraConverterAndQuery.getQuery().hashCode() != this.selectHash) {
@@ -225,6 +241,109 @@ public class CassandraSourceTask extends SourceTask implements SchemaChangeListe
         return this.selectStatement;
     }
 
+    /**
+     * @return the digest of the legacy or compact mutation value, compact mutation values carry a binary Murmur3 digest.
+     */
+    static String digest(Struct mutationStruct) {
+        byte[] digest = bytes(mutationStruct, "digest");
+        return digest != null
+                ? DigestVersion.MURMUR3_128.format(digest)
+                : mutationStruct.getString("md5Digest");
+    }
+
+    /**
+     * @return the index of the non primary key columns, as built by the producers from the Cassandra table schema.
+     */
+    static ColumnIndex buildColumnIndex(TableMetadata tableMetadata) {
+        return new ColumnIndex(tableMetadata.getColumns().values().stream()
+                .filter(c -> !tableMetadata.getPrimaryKey().contains(c))
+                .map(c -> c.getName().asInternal())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the decoded row image of the mutation value, or null to read the row. The row image of a compact mutation value
+     * is only used when its columns bitmap was encoded with the column index of the current table schema.
+     */
+    static Map<String, ByteBuffer> rowImage(Struct mutationStruct, ColumnIndex columnIndex) {
+        byte[] bitmap = bytes(mutationStruct, "columnsBitmap");
+        if (bitmap != null) {
+            Integer version = mutationStruct.getInt32("columnsVersion");
+            String[] columns = columnIndex.columns(version, bitmap);
+            if (columns == null) {
+                log.debug("Columns version={} does not match the table schema version={}, reading the row",
+                        version, columnIndex.version());
+                return null;
+            }
+            log.debug("Mutated columns={}", Arrays.asList(columns));
+        }
+        byte[] rowImage = bytes(mutationStruct, "rowImage");
+        return rowImage == null ? null : RowImage.decode(rowImage);
+    }
+
+    /**
+     * @return the value of an optional bytes field, null when absent from a legacy mutation value schema.
+     */
+    static byte[] bytes(Struct mutationStruct, String fieldName) {
+        Object value = mutationStruct.schema().field(fieldName) == null ? null : mutationStruct.get(fieldName);
+        if (value instanceof ByteBuffer) {
+            ByteBuffer bb = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[bb.remaining()];
+            bb.get(bytes);
+            return bytes;
+        }
+        return (byte[]) value;
+    }
+
+    /**
+     * Build the record of a range deletion, with a null value and the clustering range in the {@link #CLUSTERING_RANGE_HEADER} header,
+     * followed by the records of the rows written after the deletion in the range, read with a single paged query,
+     * because the source cannot know the deleted rows.
+     */
+    List<SourceRecord> rangeDeletion(int partition, Schema keySchema, Struct mutationKey, List<Object> pk,
+                                     ClusteringRange range, CassandraConverterAndQuery converterAndQuery) {
+        TableMetadata tm = converterAndQuery.getTableMetadata();
+        String condition = cassandraClient.formatClusteringRange(tm,
+                range.getStart(), range.isStartInclusive(), range.getEnd(), range.isEndInclusive());
+        List<SourceRecord> records = new ArrayList<>();
+        records.add(new SourceRecord(
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                dataTopic,
+                partition,
+                keySchema,
+                mutationKey,
+                converterAndQuery.getConverter().getSchema(),
+                null,
+                null,
+                new ConnectHeaders().addString(CLUSTERING_RANGE_HEADER, condition)));
+
+        Iterator<Tuple2<Row, Row>> rows = cassandraClient.selectRange(tm, converterAndQuery.getColumns(),
+                pk.subList(0, tm.getPartitionKey().size()),
+                range.getStart(), range.isStartInclusive(), range.getEnd(), range.isEndInclusive(),
+                ConsistencyLevel.LOCAL_QUORUM);
+        while (rows.hasNext()) {
+            Tuple2<Row, Row> row = rows.next();
+            // keep the key schema of the mutation key, with the clustering columns of the row
+            Struct primaryKey = converterAndQuery.getPrimaryKeyConverter().buildStruct(row._1);
+            Struct key = new Struct(keySchema);
+            for (Field field : keySchema.fields()) {
+                key.put(field, primaryKey.get(field.name()));
+            }
+            records.add(new SourceRecord(
+                    ImmutableMap.of(),
+                    ImmutableMap.of(),
+                    dataTopic,
+                    partition,
+                    keySchema,
+                    key,
+                    converterAndQuery.getConverter().getSchema(),
+                    converterAndQuery.getConverter().buildStruct(row._2)));
+        }
+        log.debug("Range deletion key={} range={} rows={}", mutationKey, condition, records.size() - 1);
+        return records;
+    }
+
     /**
      * <p>
      * Poll this source task for new records. If no data is currently available, this method
@@ -253,7 +372,7 @@ public class CassandraSourceTask extends SourceTask implements SchemaChangeListe
 
             SchemaAndValue mutationSchemaAndValue = mutationValueConverter.toConnectData(this.eventsTopic, consumerRecord.value());
             Struct mutationStruct = (Struct) mutationSchemaAndValue.value();
-            String md5Digest = mutationStruct.getString("md5Digest");
+            String md5Digest = digest(mutationStruct);
             String nodeId = mutationStruct.getString("nodeId");
             if (mutationCache.isMutationProcessed(mutationKey, md5Digest) == false) {
                 try {
@@ -271,12 +390,20 @@ public class CassandraSourceTask extends SourceTask implements SchemaChangeListe
                         String colName = cassandraConverterAndStatementFinal.getConverter().getPrimaryKeyColumns().get(0).getName().asCql(true);
                         pk.add(keySchemaAndValue.value());
                     }
+                    byte[] clusteringRange = bytes(mutationStruct, "clusteringRange");
+                    if (clusteringRange != null) {
+                        sourceRecords.addAll(rangeDeletion(consumerRecord.partition(), mutationKeySchema, (Struct) mutationKey, pk,
+                                ClusteringRange.decode(clusteringRange), cassandraConverterAndStatementFinal));
+                        mutationCache.addMutationMd5(mutationKey, md5Digest);
+                        continue;
+                    }
                     Tuple3<Row, ConsistencyLevel, UUID> tuple = cassandraClient.selectRow(
                             pk,
                             UUID.fromString(nodeId),
                             new ArrayList<>(consistencyLevels),
                             getSelectStatement(),
-                            md5Digest
+                            md5Digest,
+                            rowImage(mutationStruct, cassandraConverterAndStatementFinal.getColumnIndex())
                     );
                     Object value = null;
                     if (tuple._1 != null) {
@@ -15,7 +15,11 @@
  */
 package com.datastax.oss.pulsar.source;
 
+import com.datastax.cassandra.cdc.ClusteringRange;
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.cassandra.cdc.DigestVersion;
 import com.datastax.cassandra.cdc.MutationValue;
+import com.datastax.cassandra.cdc.RowImage;
 import com.datastax.oss.cdc.CassandraClient;
 import com.datastax.oss.cdc.CassandraSourceConnectorConfig;
 import com.datastax.oss.cdc.MutationCache;
@@ -27,6 +31,7 @@ import com.datastax.oss.driver.api.core.metadata.schema.*;
 import com.datastax.oss.driver.api.core.type.UserDefinedType;
 import com.datastax.oss.pulsar.source.converters.AvroConverter;
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.datastax.oss.cdc.ConfigUtil;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -46,6 +51,7 @@ import org.apache.pulsar.io.core.annotations.Connector;
 import org.apache.pulsar.io.core.annotations.IOType;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -63,6 +69,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CassandraSource implements Source<GenericRecord>, SchemaChangeListener {
 
+    /**
+     * Record property holding the CQL condition on the clustering columns of a range deletion, empty for a partition deletion.
+     */
+    public static final String CLUSTERING_RANGE_PROPERTY = "clusteringRange";
+
     CassandraSourceConnectorConfig config;
     CassandraClient cassandraClient;
     Consumer<KeyValue<GenericRecord, MutationValue>> consumer = null;
@@ -80,6 +91,9 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
 
     MutationCache<String> mutationCache;
 
+    // records of the live rows of a range deletion, read page by page
+    Iterator<Record<GenericRecord>> pendingRecords = null;
+
     Schema<KeyValue<GenericRecord, MutationValue>> eventsSchema = Schema.KeyValue(
             Schema.AUTO_CONSUME(),
             Schema.AVRO(MutationValue.class),
@@ -158,7 +172,10 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
                     columns.stream().map(c -> c.getName().asInternal()).collect(Collectors.toList()));
             this.valueConverterAndQuery = new ConverterAndQuery(
                     createConverter(config.getValueConverterClass(), ksm, tableMetadata, columns),
-                    cassandraClient.buildSelect(tableMetadata, columns));
+                    cassandraClient.buildSelect(tableMetadata, columns),
+                    tableMetadata,
+                    columns,
+                    buildColumnIndex(tableMetadata));
             // Invalidate the prepare statement if the query has changed.
             // We cannot build the statement here form a C* driver thread (can cause dead lock)
             if (!valueConverterAndQuery.getQuery().equals(selectQuery)) {
@@ -170,6 +187,33 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         }
     }
 
+    /**
+     * @return the index of the non primary key columns, as built by the producers from the Cassandra table schema.
+     */
+    static ColumnIndex buildColumnIndex(TableMetadata tableMetadata) {
+        return new ColumnIndex(tableMetadata.getColumns().values().stream()
+                .filter(c -> !tableMetadata.getPrimaryKey().contains(c))
+                .map(c -> c.getName().asInternal())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the decoded row image of the mutation value, or null to read the row. The row image of a compact mutation value
+     * is only used when its columns bitmap was encoded with the column index of the current table schema.
+     */
+    static Map<String, ByteBuffer> rowImage(MutationValue mutationValue, ColumnIndex columnIndex) {
+        if (mutationValue.getColumnsBitmap() != null) {
+            String[] columns = columnIndex.columns(mutationValue.getColumnsVersion(), mutationValue.getColumnsBitmap());
+            if (columns == null) {
+                log.debug("Columns version={} does not match the table schema version={}, reading the row",
+                        mutationValue.getColumnsVersion(), columnIndex.version());
+                return null;
+            }
+            log.debug("Mutated columns={}", Arrays.asList(columns));
+        }
+        return mutationValue.getRowImage() == null ? null : RowImage.decode(mutationValue.getRowImage());
+    }
+
     // Build the prepared statement if needed
     synchronized PreparedStatement getSelectStatement() {
         if (this.selectStatement == null) {
@@ -202,6 +246,12 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
     @SuppressWarnings("unchecked")
     public Record<GenericRecord> read() throws Exception {
         log.debug("reading from topic={}", dirtyTopicName);
+        if (pendingRecords != null) {
+            if (pendingRecords.hasNext()) {
+                return pendingRecords.next();
+            }
+            pendingRecords = null;
+        }
         while (true) {
             final Message<KeyValue<GenericRecord, MutationValue>> msg = consumer.receive();
             final KeyValue<GenericRecord, MutationValue> kv = msg.getValue();
@@ -211,46 +261,37 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
             log.debug("Message from producer={} msgId={} key={} value={}\n",
                     msg.getProducerName(), msg.getMessageId(), kv.getKey(), kv.getValue());
 
-            if (mutationCache.isMutationProcessed(msg.getKey(), mutationValue.getMd5Digest()) == false) {
+            // compact mutation values carry a binary Murmur3 digest
+            final String digest = mutationValue.getDigest() != null
+                    ? DigestVersion.MURMUR3_128.format(mutationValue.getDigest())
+                    : mutationValue.getMd5Digest();
+            if (mutationCache.isMutationProcessed(msg.getKey(), digest) == false) {
                 try {
                     List<Object> pk = (List<Object>) mutationKeyConverter.fromConnectData(mutationKey);
                     // ensure the schema is the one used when building the struct.
                     final ConverterAndQuery converterAndQueryFinal = this.valueConverterAndQuery;
 
+                    if (mutationValue.getClusteringRange() != null) {
+                        Record<GenericRecord> record = rangeDeletion(mutationKey, pk, ClusteringRange.decode(mutationValue.getClusteringRange()), converterAndQueryFinal);
+                        acknowledge(consumer, msg);
+                        mutationCache.addMutationMd5(msg.getKey(), digest);
+                        return record;
+                    }
+
                     Tuple3<Row, ConsistencyLevel, UUID> tuple = cassandraClient.selectRow(
                             pk,
                             mutationValue.getNodeId(),
                             Lists.newArrayList(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_ONE),
                             getSelectStatement(),
-                            mutationValue.getMd5Digest());
+                            digest,
+                            rowImage(mutationValue, converterAndQueryFinal.getColumnIndex()));
 
                     Object value = tuple._1 == null ? null : converterAndQueryFinal.getConverter().toConnectData(tuple._1);
-                    KeyValue<Object, Object> keyValue = new KeyValue(mutationKey, value);
-                    final KVRecord record = new KVRecord() {
-                        @Override
-                        public Schema getKeySchema() {
-                            return keyConverter.getSchema();
-                        }
-
-                        @Override
-                        public Schema getValueSchema() {
-                            return converterAndQueryFinal.getConverter().getSchema();
-                        }
-
-                        @Override
-                        public KeyValueEncodingType getKeyValueEncodingType() {
-                            return KeyValueEncodingType.SEPARATED;
-                        }
-
-                        @Override
-                        public KeyValue getValue() {
-                            return keyValue;
-                        }
-                    };
+                    final Record<GenericRecord> record = record(mutationKey, value, converterAndQueryFinal, Collections.emptyMap());
                     acknowledge(consumer, msg);
                     if (!config.getCacheOnlyIfCoordinatorMatch() || (tuple._3 != null && tuple._3.equals(mutationValue.getNodeId()))) {
                         // cache the mutation digest if the coordinator is the source of this event.
-                        mutationCache.addMutationMd5(msg.getKey(), mutationValue.getMd5Digest());
+                        mutationCache.addMutationMd5(msg.getKey(), digest);
                     }
                     return record;
                 } catch (Exception e) {
@@ -264,6 +305,60 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         }
     }
 
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    Record<GenericRecord> record(Object key, Object value, ConverterAndQuery converterAndQuery, Map<String, String> properties) {
+        KeyValue<Object, Object> keyValue = new KeyValue(key, value);
+        return new KVRecord() {
+            @Override
+            public Schema getKeySchema() {
+                return keyConverter.getSchema();
+            }
+
+            @Override
+            public Schema getValueSchema() {
+                return converterAndQuery.getConverter().getSchema();
+            }
+
+            @Override
+            public KeyValueEncodingType getKeyValueEncodingType() {
+                return KeyValueEncodingType.SEPARATED;
+            }
+
+            @Override
+            public KeyValue getValue() {
+                return keyValue;
+            }
+
+            @Override
+            public Map<String, String> getProperties() {
+                return properties;
+            }
+        };
+    }
+
+    /**
+     * Build the record of a range deletion, with a null value and the clustering range in the {@link #CLUSTERING_RANGE_PROPERTY} property.
+     * The source cannot know the deleted rows, so the rows written after the deletion in the range are read with a single paged query,
+     * and returned by the next reads.
+     */
+    @SuppressWarnings("unchecked")
+    Record<GenericRecord> rangeDeletion(GenericRecord mutationKey, List<Object> pk, ClusteringRange range, ConverterAndQuery converterAndQuery) {
+        TableMetadata tm = converterAndQuery.getTableMetadata();
+        String condition = cassandraClient.formatClusteringRange(tm,
+                range.getStart(), range.isStartInclusive(), range.getEnd(), range.isEndInclusive());
+        Iterator<Tuple2<Row, Row>> rows = cassandraClient.selectRange(tm, converterAndQuery.getColumns(),
+                pk.subList(0, tm.getPartitionKey().size()),
+                range.getStart(), range.isStartInclusive(), range.getEnd(), range.isEndInclusive(),
+                ConsistencyLevel.LOCAL_QUORUM);
+        this.pendingRecords = Iterators.transform(rows, tuple -> record(
+                keyConverter.toConnectData(tuple._1),
+                converterAndQuery.getConverter().toConnectData(tuple._2),
+                converterAndQuery,
+                Collections.emptyMap()));
+        log.debug("Range deletion key={} range={}", mutationKey, condition);
+        return record(mutationKey, null, converterAndQuery, Collections.singletonMap(CLUSTERING_RANGE_PROPERTY, condition));
+    }
+
     <T> java.util.function.Consumer<T> acknowledgeConsumer(final Consumer<KeyValue<GenericRecord, MutationValue>> consumer,
                                                            final Message<KeyValue<GenericRecord, MutationValue>> message) {
         return new java.util.function.Consumer<T>() {
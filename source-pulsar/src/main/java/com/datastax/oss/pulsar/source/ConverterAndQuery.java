@@ -15,11 +15,16 @@
  */
 package com.datastax.oss.pulsar.source;
 
+import com.datastax.cassandra.cdc.ColumnIndex;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @EqualsAndHashCode
@@ -27,4 +32,9 @@ import lombok.ToString;
 public class ConverterAndQuery {
     final Converter converter;
     final String query;
+    final TableMetadata tableMetadata;
+    // the selected columns
+    final List<ColumnMetadata> columns;
+    // index of the non primary key columns, to decode the columns bitmap of the mutation values
+    final ColumnIndex columnIndex;
 }
@@ -31,7 +31,10 @@ import com.datastax.oss.driver.api.core.config.ProgrammaticDriverConfigLoaderBui
 import com.datastax.oss.driver.api.core.config.TypedDriverOption;
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.metadata.Metadata;
 import com.datastax.oss.driver.api.core.metadata.Node;
@@ -40,10 +43,13 @@ import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.SchemaChangeListener;
 import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
 import com.datastax.oss.driver.api.core.servererrors.UnavailableException;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
 import com.datastax.oss.driver.api.querybuilder.select.Select;
 import com.datastax.oss.driver.internal.core.auth.PlainTextAuthProvider;
 import com.datastax.oss.driver.internal.core.config.typesafe.DefaultDriverConfigLoader;
 import com.datastax.oss.driver.internal.core.config.typesafe.DefaultProgrammaticDriverConfigLoaderBuilder;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
 import com.datastax.oss.driver.shaded.guava.common.collect.ImmutableMap;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
@@ -54,8 +60,10 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
@@ -273,6 +281,56 @@ public class CassandraClient implements AutoCloseable {
                 .toCompletableFuture().get();
     }
 
+    public Tuple3<Row, ConsistencyLevel, UUID> selectRow(List<Object> pkValues,
+                                                         UUID nodeId,
+                                                         List<ConsistencyLevel> consistencyLevels,
+                                                         PreparedStatement preparedStatement,
+                                                         String md5Digest,
+                                                         Map<String, ByteBuffer> rowImage)
+            throws ExecutionException, InterruptedException {
+        return selectRowAsync(pkValues, nodeId, consistencyLevels, preparedStatement, md5Digest, rowImage)
+                .toCompletableFuture().get();
+    }
+
+    /**
+     * Build the row from the row image of the mutation when it contains all the selected columns, without consistency level,
+     * or read it from Cassandra.
+     * @param rowImage the CQL native protocol serialized values of the mutated columns, or null.
+     */
+    public CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> selectRowAsync(List<Object> pkValues,
+                                                                               UUID nodeId,
+                                                                               List<ConsistencyLevel> consistencyLevels,
+                                                                               PreparedStatement preparedStatement,
+                                                                               String md5Digest,
+                                                                               Map<String, ByteBuffer> rowImage) {
+        Row row = rowImage == null ? null : buildRow(preparedStatement, rowImage);
+        if (row != null) {
+            log.debug("Row image md5Digest={} pk={}", md5Digest, pkValues);
+            return CompletableFuture.completedFuture(new Tuple3<>(row, null, nodeId));
+        }
+        return selectRowAsync(pkValues, nodeId, consistencyLevels, preparedStatement, md5Digest);
+    }
+
+    /**
+     * Build the row of the select statement from a row image, with null values for the deleted columns.
+     * @return the row, or null when a selected column is missing from the row image or when all the selected columns are deleted.
+     */
+    Row buildRow(PreparedStatement preparedStatement, Map<String, ByteBuffer> rowImage) {
+        ColumnDefinitions definitions = preparedStatement.getResultSetDefinitions();
+        List<ByteBuffer> data = new ArrayList<>(definitions.size());
+        boolean live = false;
+        for (ColumnDefinition definition : definitions) {
+            String name = definition.getName().asInternal();
+            if (!rowImage.containsKey(name)) {
+                return null;
+            }
+            ByteBuffer value = rowImage.get(name);
+            live |= value != null;
+            data.add(value);
+        }
+        return live ? new DefaultRow(definitions, data, cqlSession.getContext()) : null;
+    }
+
     /**
      * Try to read CL=ALL (could be LOCAL_ALL), retry LOCAL_QUORUM, retry LOCAL_ONE.
      */
@@ -306,6 +364,112 @@ public class CassandraClient implements AutoCloseable {
                 });
     }
 
+    /**
+     * Read the live rows of a clustering range of a partition with a single paged query, the pages are fetched while iterating.
+     * The clustering bounds are clustering prefixes serialized with the CQL native protocol, empty when unbounded.
+     * @return the rows split into their primary key columns and their selected columns.
+     */
+    public Iterator<Tuple2<Row, Row>> selectRange(TableMetadata tableMetadata,
+                                                  List<ColumnMetadata> columns,
+                                                  List<Object> partitionKey,
+                                                  List<ByteBuffer> start, boolean startInclusive,
+                                                  List<ByteBuffer> end, boolean endInclusive,
+                                                  ConsistencyLevel consistencyLevel) {
+        List<ColumnMetadata> primaryKey = tableMetadata.getPrimaryKey();
+        StringBuilder query = new StringBuilder("SELECT ");
+        int i = 0;
+        for (ColumnMetadata column : primaryKey) {
+            query.append(i++ == 0 ? "" : ", ").append(column.getName().asCql(true));
+        }
+        for (ColumnMetadata column : columns) {
+            query.append(", ").append(column.getName().asCql(true));
+        }
+        query.append(" FROM ").append(tableMetadata.getKeyspace().asCql(true)).append('.').append(tableMetadata.getName().asCql(true));
+        i = 0;
+        for (ColumnMetadata column : tableMetadata.getPartitionKey()) {
+            query.append(i++ == 0 ? " WHERE " : " AND ").append(column.getName().asCql(true)).append(" = ?");
+        }
+        appendClusteringBound(query, tableMetadata, start.size(), startInclusive ? " >= " : " > ", null);
+        appendClusteringBound(query, tableMetadata, end.size(), endInclusive ? " <= " : " < ", null);
+
+        BoundStatement statement = cqlSession.prepare(query.toString()).bind(partitionKey.toArray(new Object[0]));
+        i = partitionKey.size();
+        for (ByteBuffer value : start) {
+            statement = statement.setBytesUnsafe(i++, value);
+        }
+        for (ByteBuffer value : end) {
+            statement = statement.setBytesUnsafe(i++, value);
+        }
+        log.debug("Fetching range query={} pk={}", query, partitionKey);
+        ResultSet resultSet = cqlSession.execute(statement.setConsistencyLevel(consistencyLevel));
+
+        ColumnDefinitions definitions = resultSet.getColumnDefinitions();
+        List<ColumnDefinition> keyDefinitions = new ArrayList<>(primaryKey.size());
+        List<ColumnDefinition> valueDefinitions = new ArrayList<>(columns.size());
+        for (i = 0; i < definitions.size(); i++) {
+            (i < primaryKey.size() ? keyDefinitions : valueDefinitions).add(definitions.get(i));
+        }
+        final ColumnDefinitions keyColumns = DefaultColumnDefinitions.valueOf(keyDefinitions);
+        final ColumnDefinitions valueColumns = DefaultColumnDefinitions.valueOf(valueDefinitions);
+        final Iterator<Row> rows = resultSet.iterator();
+        return new Iterator<Tuple2<Row, Row>>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Tuple2<Row, Row> next() {
+                Row row = rows.next();
+                List<ByteBuffer> keyData = new ArrayList<>(keyColumns.size());
+                List<ByteBuffer> valueData = new ArrayList<>(valueColumns.size());
+                for (int j = 0; j < definitions.size(); j++) {
+                    (j < keyColumns.size() ? keyData : valueData).add(row.getBytesUnsafe(j));
+                }
+                return new Tuple2<>(
+                        new DefaultRow(keyColumns, keyData, cqlSession.getContext()),
+                        new DefaultRow(valueColumns, valueData, cqlSession.getContext()));
+            }
+        };
+    }
+
+    /**
+     * Format a clustering range as a CQL condition, for example {@code (ck1, ck2) >= (1, 'a') AND (ck1) < (2)},
+     * or an empty string for the whole partition.
+     */
+    public String formatClusteringRange(TableMetadata tableMetadata,
+                                        List<ByteBuffer> start, boolean startInclusive,
+                                        List<ByteBuffer> end, boolean endInclusive) {
+        StringBuilder condition = new StringBuilder();
+        appendClusteringBound(condition, tableMetadata, start.size(), startInclusive ? " >= " : " > ", start);
+        appendClusteringBound(condition, tableMetadata, end.size(), endInclusive ? " <= " : " < ", end);
+        // strip the leading AND
+        return condition.length() == 0 ? "" : condition.substring(" AND ".length());
+    }
+
+    /**
+     * Append a multi-column relation on a clustering prefix, with bind markers or with the formatted values.
+     */
+    void appendClusteringBound(StringBuilder query, TableMetadata tableMetadata, int size, String operator, List<ByteBuffer> values) {
+        if (size == 0)
+            return;
+        List<ColumnMetadata> clusteringColumns = new ArrayList<>(tableMetadata.getClusteringColumns().keySet());
+        StringBuilder names = new StringBuilder();
+        StringBuilder terms = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            ColumnMetadata column = clusteringColumns.get(i);
+            names.append(i == 0 ? "" : ", ").append(column.getName().asCql(true));
+            terms.append(i == 0 ? "" : ", ");
+            if (values == null) {
+                terms.append('?');
+            } else {
+                TypeCodec<Object> codec = cqlSession.getContext().getCodecRegistry().codecFor(column.getType());
+                terms.append(codec.format(codec.decode(values.get(i), cqlSession.getContext().getProtocolVersion())));
+            }
+        }
+        query.append(" AND (").append(names).append(')').append(operator).append('(').append(terms).append(')');
+    }
+
     CompletionStage<Tuple2<AsyncResultSet, ConsistencyLevel>> executeWithDowngradeConsistencyRetry(
             CqlSession cqlSession,
             BoundStatement statement,
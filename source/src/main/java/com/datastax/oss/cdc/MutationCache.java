@@ -24,11 +24,42 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Keep MD5 digests to deduplicate Cassandra mutations
+ * Keep mutation digests to deduplicate Cassandra mutations.
+ *
+ * Digests are hex strings, optionally prefixed by their digest version. 128 bits digests are kept as two longs,
+ * other digests are kept as strings.
  */
 public class MutationCache<K> {
 
-    Cache<K, List<String>> mutationCache;
+    /**
+     * A 128 bits digest.
+     */
+    static final class Digest128 {
+        final long h1;
+        final long h2;
+
+        Digest128(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Digest128))
+                return false;
+            Digest128 other = (Digest128) o;
+            return h1 == other.h1 && h2 == other.h2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(h1) * 31 + Long.hashCode(h2);
+        }
+    }
+
+    Cache<K, List<Object>> mutationCache;
 
     /**
      * Max number of cached digest per cached entry.
@@ -43,22 +74,41 @@ public class MutationCache<K> {
                 .build();
     }
 
-    public List<String> getMutationCRCs(K mutationKey) {
+    /**
+     * @return the cached representation of a digest.
+     */
+    static Object digestKey(String digest) {
+        // skip the digest version prefix, digests of different versions do not collide
+        int offset = digest.indexOf(':') + 1;
+        if (digest.length() - offset == 32) {
+            try {
+                return new Digest128(
+                        Long.parseUnsignedLong(digest.substring(offset, offset + 16), 16),
+                        Long.parseUnsignedLong(digest.substring(offset + 16), 16));
+            } catch (NumberFormatException e) {
+                // not an hex digest
+            }
+        }
+        return digest;
+    }
+
+    public List<Object> getMutationCRCs(K mutationKey) {
         return mutationCache.getIfPresent(mutationKey);
     }
 
-    public List<String> addMutationMd5(K mutationKey, String md5Digest) {
-        List<String> crcs = getMutationCRCs(mutationKey);
+    public List<Object> addMutationMd5(K mutationKey, String md5Digest) {
+        Object digest = digestKey(md5Digest);
+        List<Object> crcs = getMutationCRCs(mutationKey);
         if(crcs == null) {
             crcs = new ArrayList<>(1);
-            crcs.add(md5Digest);
+            crcs.add(digest);
         } else {
-            if (!crcs.contains(md5Digest)) {
+            if (!crcs.contains(digest)) {
                 if (crcs.size() >= maxDigests) {
                     // remove the oldest digest
                     crcs.remove(0);
                 }
-                crcs.add(md5Digest);
+                crcs.add(digest);
             }
         }
         mutationCache.put(mutationKey, crcs);
@@ -66,7 +116,7 @@ public class MutationCache<K> {
     }
 
     public boolean isMutationProcessed(K mutationKey, String md5Digest) {
-        List<String> digests = getMutationCRCs(mutationKey);
-        return digests != null && digests.contains(md5Digest);
+        List<Object> digests = getMutationCRCs(mutationKey);
+        return digests != null && digests.contains(digestKey(md5Digest));
     }
 }
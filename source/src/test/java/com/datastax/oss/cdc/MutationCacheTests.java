@@ -51,4 +51,14 @@ public class MutationCacheTests {
         assertEquals(false, mutationCache.isMutationProcessed("mutation1","digest1"));
     }
 
+    @Test
+    public final void testDigestVersions() throws Exception {
+        MutationCache mutationCache = new MutationCache(3, 10, Duration.ofHours(1));
+        mutationCache.addMutationMd5("mutation1","m3:0123456789abcdeffedcba9876543210");
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1","0123456789ABCDEFFEDCBA9876543210"));
+        assertEquals(false, mutationCache.isMutationProcessed("mutation1","0123456789abcdeffedcba9876543211"));
+        mutationCache.addMutationMd5("mutation1","0123456789abcdeffedcba9876543210");
+        assertEquals(1L, mutationCache.getMutationCRCs("mutation1").size());
+    }
+
 }